@@ -1,66 +1,42 @@
 package net.origamimarie.penrose;
 
 import lombok.extern.slf4j.Slf4j;
-import net.origamimarie.penrose.coloring.ColoredShapeGroup;
+import net.origamimarie.penrose.batch.BatchPipeline;
+import net.origamimarie.penrose.batch.BatchSummary;
+import net.origamimarie.penrose.batch.JobSpec;
 import net.origamimarie.penrose.coloring.ColoringScheme;
 import net.origamimarie.penrose.coloring.ShapeGroup;
 import static net.origamimarie.penrose.coloring.ShapeGroup.ShapeGroupType;
 
 import net.origamimarie.penrose.generation.Point;
-import net.origamimarie.penrose.generation.TilingGenerator;
-import net.origamimarie.penrose.output.SvgOutput;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
 public class Main {
 
-  private static int xHigh;
-  private static int yHigh;
-
   public static void main(String[] args) throws IOException {
-    xHigh = 60;
-    yHigh = 60;
-    getToException();
+    runBatch();
   }
 
-  private static void getToException() throws IOException {
-    xHigh = 30;
-    yHigh = 30;
+  // A hundred pictures, each with its own seed and its own file, generating and coloring on every core.
+  private static void runBatch() throws IOException {
+    File directory = new File("/Users/mariep/personalcode/penrose/batch");
+    directory.mkdirs();
+    List<JobSpec> specs = new ArrayList<>(100);
     for(int i = 0; i < 100; i++) {
-      try {
-        makePrettyThing();
-      } catch (Exception e) {
-        log.debug("", e);
-        i--;
-      }
-    }
-  }
-
-  private static void makePrettyThing() throws IOException {
-    Point low = new Point(0, 0);
-    Point high = new Point(xHigh, yHigh);
-    TilingGenerator generator = new TilingGenerator(low, high);
-    File file = new File("/Users/mariep/personalcode/penrose/colors.svg");
-    Collection<ShapeGroup> shapeGroups = ShapeGroup.generateShapeGroups(generator.getAllVertices(),
-            ShapeGroupType.SINGLE_SHAPES, ShapeGroup.NeighborsType.VERTICES, low, high);
-    if(shapeGroups.size() > 4) {
-      try {
-        List<ColoredShapeGroup> coloredShapeGroup = ColoredShapeGroup.colorShapeGroups(shapeGroups,
-                ColoringScheme.RAINBOW_32_FUZZY_SIMILAR);
-        log.debug("dumping {} shapeGroups to file", coloredShapeGroup.size());
-        ColoredShapeGroup.resetFileNumber();
-        SvgOutput.shapeGroupsToSvgFile(file, coloredShapeGroup, 5, false, null, 0.7);
-      } catch (Exception e) {
-        ColoredShapeGroup.dumpToFile(true, null);
-        log.debug("", e);
-      }
-    } else {
-      throw new IllegalArgumentException("Woops, silly thing, it only made a few shapes!");
+      specs.add(new JobSpec("colors" + i, new Point(0, 0), new Point(30, 30),
+              ShapeGroupType.SINGLE_SHAPES, ShapeGroup.NeighborsType.VERTICES, ColoringScheme.RAINBOW_32_FUZZY_SIMILAR,
+              i, new File(directory, "colors" + i + ".svg")));
     }
+    int cores = Runtime.getRuntime().availableProcessors();
+    BatchSummary summary = new BatchPipeline(cores, cores, 2, 60000, 5).run(specs);
+    summary.writeTo(new File(directory, "summary.txt"));
+    log.info("{} succeeded, {} failed, {} timed out, {} jobs per minute", summary.getSucceededCount(),
+            summary.getFailedCount(), summary.getTimedOutCount(), summary.getJobsPerMinute());
   }
 
 }
@@ -0,0 +1,46 @@
+package net.origamimarie.penrose.batch;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Interrupts the attempt's thread if time runs out before the attempt finishes.
+// The lock makes sure an interrupt can't land after the attempt has finished and cleared it,
+// where it would hit the next attempt (or the next job) instead.
+class AttemptTimer {
+
+  private final Thread thread;
+  private boolean finished = false;
+  private boolean expired = false;
+  private ScheduledFuture<?> interruption;
+
+  private AttemptTimer(Thread thread) {
+    this.thread = thread;
+  }
+
+  // Starts timing the current thread.
+  static AttemptTimer start(ScheduledExecutorService timer, long timeoutMillis) {
+    AttemptTimer attemptTimer = new AttemptTimer(Thread.currentThread());
+    attemptTimer.interruption = timer.schedule(attemptTimer::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+    return attemptTimer;
+  }
+
+  private synchronized void expire() {
+    if(!finished) {
+      expired = true;
+      thread.interrupt();
+    }
+  }
+
+  // True if the attempt ran out of time.
+  boolean finish() {
+    interruption.cancel(false);
+    synchronized(this) {
+      finished = true;
+    }
+    // Clear out any interrupt that got in before we finished.
+    Thread.interrupted();
+    return expired;
+  }
+
+}
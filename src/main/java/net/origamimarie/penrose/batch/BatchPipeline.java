@@ -0,0 +1,293 @@
+package net.origamimarie.penrose.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import net.origamimarie.penrose.coloring.ColoredShapeGroup;
+import net.origamimarie.penrose.coloring.ColoringEngine;
+import net.origamimarie.penrose.coloring.ShapeGroup;
+import net.origamimarie.penrose.generation.Tiling;
+import net.origamimarie.penrose.generation.TilingGenerator;
+import net.origamimarie.penrose.generation.Vertex;
+import net.origamimarie.penrose.output.SvgOutput;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The same jobs as BatchRunner, but with each phase as its own stage:
+// generate -> group -> color -> render, with a small bounded queue between each pair.
+// Any one job still goes through the phases in order (coloring needs all of the groups, and so on),
+// but while one job is being colored the next one can be generating and the one before can be rendering.
+// When a stage falls behind, its queue fills up and the stage before it waits, so only so many jobs are ever in memory.
+// Generation and coloring get their own thread counts, since those are the slow ones.
+//
+// A failed attempt goes back to generation for a whole new tiling, just like in BatchRunner.
+// (Coloring is an exhaustive search after the first group, so coloring the same groups again hardly ever helps.)
+// That trip back goes through a queue with no limit, so a full queue downstream can never wait on a full one upstream.
+// There can't be more retries waiting than there are jobs in the pipeline anyway.
+// Attempts split their randomness off the seed the same way BatchRunner does, so both make the same pictures.
+// An attempt gets timeoutMillis in all, across every stage, like one attempt in BatchRunner does.
+// Time spent sitting in a queue doesn't count, since that's the pipeline's fault and not the job's.
+@Slf4j
+public class BatchPipeline {
+
+  // Tells a stage thread there's nothing more coming.
+  private static final PipelineJob END = new PipelineJob(-1, null);
+
+  private final int generationThreads;
+  private final int coloringThreads;
+  private final int queueCapacity;
+  private final long timeoutMillis;
+  private final int maxAttempts;
+
+  public BatchPipeline(int generationThreads, int coloringThreads, int queueCapacity, long timeoutMillis,
+                       int maxAttempts) {
+    if(generationThreads < 1 || coloringThreads < 1 || queueCapacity < 1 || timeoutMillis < 1 || maxAttempts < 1) {
+      throw new IllegalArgumentException("Need at least one of everything");
+    }
+    this.generationThreads = generationThreads;
+    this.coloringThreads = coloringThreads;
+    this.queueCapacity = queueCapacity;
+    this.timeoutMillis = timeoutMillis;
+    this.maxAttempts = maxAttempts;
+  }
+
+  // Results come back in the same order as the specs.
+  public BatchSummary run(List<JobSpec> specs) {
+    long start = System.nanoTime();
+    Run run = new Run(specs.size());
+    Stage render = new Stage(run, "render", 1, null, false, BatchPipeline::render);
+    Stage color = new Stage(run, "color", coloringThreads, render, true, BatchPipeline::color);
+    Stage group = new Stage(run, "group", 1, color, true, BatchPipeline::group);
+    Stage generate = new Stage(run, "generate", generationThreads, group, true, BatchPipeline::generate);
+    run.generation = generate;
+    List<Thread> threads = new ArrayList<>();
+    for(Stage stage : Arrays.asList(generate, group, color, render)) {
+      threads.addAll(stage.start());
+    }
+    try {
+      for(int i = 0; i < specs.size(); i++) {
+        generate.in.put(new PipelineJob(i, specs.get(i)));
+      }
+      for(Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      for(Thread thread : threads) {
+        thread.interrupt();
+      }
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while running the pipeline", e);
+    } finally {
+      run.timer.shutdownNow();
+    }
+    return new BatchSummary(Arrays.asList(run.results), (System.nanoTime() - start) / 1000000);
+  }
+
+  private static void generate(PipelineJob job) {
+    TilingGenerator generator = new TilingGenerator(job.spec.low, job.spec.high, new Tiling(job.attemptRandom.split()));
+    job.vertices = generator.getAllVertices();
+  }
+
+  private static void group(PipelineJob job) {
+    Collection<ShapeGroup> shapeGroups = ShapeGroup.generateShapeGroups(job.vertices,
+            job.spec.shapeGroupType, job.spec.neighborsType, job.spec.low, job.spec.high);
+    job.vertices = null;
+    if(shapeGroups.size() <= 4) {
+      throw new IllegalArgumentException("Woops, silly thing, it only made a few shapes!");
+    }
+    job.shapeGroups = shapeGroups;
+  }
+
+  private static void color(PipelineJob job) {
+    job.coloredShapeGroups = new ColoringEngine(job.attemptRandom.split())
+            .colorShapeGroups(job.shapeGroups, job.spec.coloringScheme);
+    job.shapeGroups = null;
+  }
+
+  private static void render(PipelineJob job) throws Exception {
+    SvgOutput.shapeGroupsToSvgFile(job.spec.output, job.coloredShapeGroups, 5, false, null, 0.7);
+  }
+
+  private interface StageWork {
+    void process(PipelineJob job) throws Exception;
+  }
+
+  // One job on its way through the pipeline.  Only one stage has it at a time, and the queues between stages
+  // make sure each stage sees what the last one left behind.
+  private static class PipelineJob {
+    final int index;
+    final JobSpec spec;
+    final SplittableRandom jobRandom;
+    SplittableRandom attemptRandom;
+    long start;
+    int attempts = 0;
+    // What's left of this attempt's time.
+    long remainingNanos;
+    Set<Vertex> vertices;
+    Collection<ShapeGroup> shapeGroups;
+    List<ColoredShapeGroup> coloredShapeGroups;
+
+    PipelineJob(int index, JobSpec spec) {
+      this.index = index;
+      this.spec = spec;
+      this.jobRandom = spec == null ? null : new SplittableRandom(spec.seed);
+    }
+  }
+
+  // What all the stages of one run share.
+  private static class Run {
+    final JobResult[] results;
+    // Counts down as jobs get their results, so generation knows when no more retries can show up.
+    final AtomicInteger unfinishedJobs;
+    final ConcurrentLinkedQueue<PipelineJob> retries = new ConcurrentLinkedQueue<>();
+    Stage generation;
+    final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "pipeline-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    Run(int jobCount) {
+      results = new JobResult[jobCount];
+      unfinishedJobs = new AtomicInteger(jobCount);
+    }
+
+    void finish(PipelineJob job, JobResult.Outcome outcome, int shapeGroupCount, Throwable failure) {
+      results[job.index] = new JobResult(job.spec, outcome, job.attempts, shapeGroupCount,
+              (System.nanoTime() - job.start) / 1000000, failure);
+      unfinishedJobs.decrementAndGet();
+    }
+  }
+
+  private class Stage {
+    private final Run run;
+    private final String name;
+    private final int threadCount;
+    private final BlockingQueue<PipelineJob> in = new ArrayBlockingQueue<>(queueCapacity);
+    // Null for the last stage.
+    private final Stage next;
+    // Whether a failure here is worth a whole new attempt.  Rendering the same picture again won't help.
+    private final boolean retryable;
+    private final StageWork work;
+    private final AtomicInteger runningThreads;
+
+    Stage(Run run, String name, int threadCount, Stage next, boolean retryable, StageWork work) {
+      this.run = run;
+      this.name = name;
+      this.threadCount = threadCount;
+      this.next = next;
+      this.retryable = retryable;
+      this.work = work;
+      runningThreads = new AtomicInteger(threadCount);
+    }
+
+    List<Thread> start() {
+      List<Thread> threads = new ArrayList<>(threadCount);
+      for(int i = 0; i < threadCount; i++) {
+        Thread thread = new Thread(this::runThread, "pipeline-" + name + "-" + i);
+        threads.add(thread);
+        thread.start();
+      }
+      return threads;
+    }
+
+    private void runThread() {
+      boolean interrupted = false;
+      try {
+        PipelineJob job;
+        while((job = take()) != END) {
+          if(process(job)) {
+            if(next == null) {
+              run.finish(job, JobResult.Outcome.SUCCEEDED, job.coloredShapeGroups.size(), null);
+            } else {
+              next.in.put(job);
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        // Only happens if whoever called run() gave up on it.
+        log.debug("{} stage interrupted", name);
+        interrupted = true;
+      } finally {
+        // The last thread out lets every thread in the next stage know that's all,
+        // even if this one is on its way out because of an Error.
+        if(runningThreads.decrementAndGet() == 0 && next != null && !interrupted) {
+          try {
+            for(int i = 0; i < next.threadCount; i++) {
+              next.in.put(END);
+            }
+          } catch (InterruptedException e) {
+            log.debug("{} stage interrupted", name);
+          }
+        }
+      }
+    }
+
+    // Generation takes retries first, and keeps going until every job has its result.
+    // Everything else just waits for the stage before it.
+    private PipelineJob take() throws InterruptedException {
+      if(run.generation != this) {
+        return in.take();
+      }
+      PipelineJob job = null;
+      while(job == null && run.unfinishedJobs.get() > 0) {
+        job = run.retries.poll();
+        if(job == null) {
+          job = in.poll(10, TimeUnit.MILLISECONDS);
+        }
+      }
+      if(job == null) {
+        return END;
+      }
+      // A new attempt, with its own randomness.
+      if(job.start == 0) {
+        job.start = System.nanoTime();
+      }
+      job.attempts++;
+      job.attemptRandom = job.jobRandom.split();
+      job.remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      return job;
+    }
+
+    // False if the job failed here, whether it's going back for another attempt or it's done for good.
+    private boolean process(PipelineJob job) {
+      AttemptTimer attemptTimer = AttemptTimer.start(run.timer,
+              TimeUnit.NANOSECONDS.toMillis(Math.max(0, job.remainingNanos)));
+      long stageStart = System.nanoTime();
+      Throwable failure = null;
+      try {
+        work.process(job);
+      } catch (Throwable t) {
+        // Errors too (a huge job can run out of memory), or the job never gets its result and the run never ends.
+        failure = t;
+      }
+      boolean timedOut = attemptTimer.finish();
+      job.remainingNanos -= System.nanoTime() - stageStart;
+      if(failure == null) {
+        return true;
+      }
+      log.debug("{} {} attempt {} {}", job.spec.name, name, job.attempts, timedOut ? "timed out" : "failed", failure);
+      // An Error isn't the attempt's bad luck, so there's no point in another one.
+      boolean error = !(failure instanceof Exception);
+      if(retryable && !error && job.attempts < maxAttempts) {
+        job.vertices = null;
+        job.shapeGroups = null;
+        run.retries.add(job);
+      } else {
+        run.finish(job, timedOut && !error ? JobResult.Outcome.TIMED_OUT : JobResult.Outcome.FAILED, 0, failure);
+      }
+      return false;
+    }
+  }
+
+}
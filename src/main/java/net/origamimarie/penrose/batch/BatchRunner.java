@@ -0,0 +1,116 @@
+package net.origamimarie.penrose.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import net.origamimarie.penrose.coloring.ColoredShapeGroup;
+import net.origamimarie.penrose.coloring.ColoringEngine;
+import net.origamimarie.penrose.coloring.ShapeGroup;
+import net.origamimarie.penrose.generation.Tiling;
+import net.origamimarie.penrose.generation.TilingGenerator;
+import net.origamimarie.penrose.output.SvgOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+// Runs a pile of jobs on a fixed number of threads.
+// Each job gets a few attempts, and each attempt gets so long before it's interrupted.
+// Generation and coloring both check for interrupts as they go, so a stuck attempt gives up fairly promptly.
+// Every attempt makes its own Tiling and ColoringEngine, so jobs don't share anything but the thread pool.
+@Slf4j
+public class BatchRunner {
+
+  private final int threadCount;
+  private final long timeoutMillis;
+  private final int maxAttempts;
+
+  public BatchRunner(int threadCount, long timeoutMillis, int maxAttempts) {
+    if(threadCount < 1 || timeoutMillis < 1 || maxAttempts < 1) {
+      throw new IllegalArgumentException("Need at least one thread, one millisecond, and one attempt");
+    }
+    this.threadCount = threadCount;
+    this.timeoutMillis = timeoutMillis;
+    this.maxAttempts = maxAttempts;
+  }
+
+  // Results come back in the same order as the specs.
+  public BatchSummary run(List<JobSpec> specs) {
+    long start = System.nanoTime();
+    ExecutorService workers = Executors.newFixedThreadPool(threadCount);
+    ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "batch-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<JobResult>> futures = new ArrayList<>(specs.size());
+      for(JobSpec spec : specs) {
+        futures.add(workers.submit(() -> runJob(spec, timer)));
+      }
+      List<JobResult> results = new ArrayList<>(specs.size());
+      for(Future<JobResult> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          // runJob catches everything the job itself can throw, so this really shouldn't happen.
+          throw new IllegalStateException("Batch job blew up outside of its attempts", e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for batch jobs", e);
+        }
+      }
+      return new BatchSummary(results, (System.nanoTime() - start) / 1000000);
+    } finally {
+      workers.shutdownNow();
+      timer.shutdownNow();
+    }
+  }
+
+  JobResult runJob(JobSpec spec, ScheduledExecutorService timer) {
+    long start = System.nanoTime();
+    // Every attempt gets its own split off of the job's seed, so retries go a different way,
+    // but the same spec always goes the same ways in the same order.
+    SplittableRandom jobRandom = new SplittableRandom(spec.seed);
+    Throwable lastFailure = null;
+    boolean timedOut = false;
+    int attempt = 0;
+    while(attempt < maxAttempts) {
+      attempt++;
+      SplittableRandom attemptRandom = jobRandom.split();
+      AttemptTimer attemptTimer = AttemptTimer.start(timer, timeoutMillis);
+      try {
+        int shapeGroupCount = runAttempt(spec, attemptRandom);
+        attemptTimer.finish();
+        return new JobResult(spec, JobResult.Outcome.SUCCEEDED, attempt, shapeGroupCount,
+                (System.nanoTime() - start) / 1000000, null);
+      } catch (Exception e) {
+        timedOut = attemptTimer.finish();
+        lastFailure = e;
+        log.debug("{} attempt {} {}", spec.name, attempt, timedOut ? "timed out" : "failed", e);
+      }
+    }
+    return new JobResult(spec, timedOut ? JobResult.Outcome.TIMED_OUT : JobResult.Outcome.FAILED, attempt, 0,
+            (System.nanoTime() - start) / 1000000, lastFailure);
+  }
+
+  private static int runAttempt(JobSpec spec, SplittableRandom random) throws IOException {
+    Tiling tiling = new Tiling(random.split());
+    TilingGenerator generator = new TilingGenerator(spec.low, spec.high, tiling);
+    Collection<ShapeGroup> shapeGroups = ShapeGroup.generateShapeGroups(generator.getAllVertices(),
+            spec.shapeGroupType, spec.neighborsType, spec.low, spec.high);
+    if(shapeGroups.size() <= 4) {
+      throw new IllegalArgumentException("Woops, silly thing, it only made a few shapes!");
+    }
+    List<ColoredShapeGroup> coloredShapeGroups = new ColoringEngine(random.split())
+            .colorShapeGroups(shapeGroups, spec.coloringScheme);
+    SvgOutput.shapeGroupsToSvgFile(spec.output, coloredShapeGroups, 5, false, null, 0.7);
+    return coloredShapeGroups.size();
+  }
+
+}
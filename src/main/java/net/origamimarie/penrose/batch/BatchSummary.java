@@ -0,0 +1,103 @@
+package net.origamimarie.penrose.batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+// The results of a batch, plus the numbers we actually care about:
+// how many pictures came out per minute, and how often jobs (and attempts) fell over.
+public class BatchSummary {
+
+  private final List<JobResult> results;
+  private final long wallMillis;
+  private int succeeded = 0;
+  private int failed = 0;
+  private int timedOut = 0;
+  private int attempts = 0;
+  private long shapeGroups = 0;
+
+  public BatchSummary(List<JobResult> results, long wallMillis) {
+    this.results = Collections.unmodifiableList(results);
+    this.wallMillis = wallMillis;
+    for(JobResult result : results) {
+      attempts += result.attempts;
+      shapeGroups += result.shapeGroupCount;
+      switch(result.outcome) {
+        case SUCCEEDED:
+          succeeded++;
+          break;
+        case FAILED:
+          failed++;
+          break;
+        case TIMED_OUT:
+          timedOut++;
+          break;
+      }
+    }
+  }
+
+  public List<JobResult> getResults() {
+    return results;
+  }
+
+  public int getSucceededCount() {
+    return succeeded;
+  }
+
+  public int getFailedCount() {
+    return failed;
+  }
+
+  public int getTimedOutCount() {
+    return timedOut;
+  }
+
+  public int getAttemptCount() {
+    return attempts;
+  }
+
+  public double getJobFailureRate() {
+    return results.isEmpty() ? 0.0 : (double)(failed + timedOut) / results.size();
+  }
+
+  // Every attempt past the first one for a job was a retry because something failed.
+  public double getAttemptFailureRate() {
+    return attempts == 0 ? 0.0 : (double)(attempts - succeeded) / attempts;
+  }
+
+  public double getJobsPerMinute() {
+    return wallMillis == 0 ? 0.0 : succeeded * 60000.0 / wallMillis;
+  }
+
+  public double getShapeGroupsPerSecond() {
+    return wallMillis == 0 ? 0.0 : shapeGroups * 1000.0 / wallMillis;
+  }
+
+  public void writeTo(File file) throws IOException {
+    BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+    try {
+      writer.append(toString());
+    } finally {
+      writer.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("%d jobs in %d ms: %d succeeded, %d failed, %d timed out%n",
+            results.size(), wallMillis, succeeded, failed, timedOut));
+    builder.append(String.format("%.1f jobs per minute, %.1f shape groups per second%n",
+            getJobsPerMinute(), getShapeGroupsPerSecond()));
+    builder.append(String.format("job failure rate %.3f, attempt failure rate %.3f (%d attempts)%n",
+            getJobFailureRate(), getAttemptFailureRate(), attempts));
+    for(JobResult result : results) {
+      builder.append(result).append(String.format("%n"));
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,38 @@
+package net.origamimarie.penrose.batch;
+
+// How a job went.  Failed jobs keep the last thing that went wrong.
+public class JobResult {
+
+  public enum Outcome {
+    SUCCEEDED,
+    // Every attempt threw (usually a coloring that couldn't be finished).
+    FAILED,
+    // The last attempt ran out of time.
+    TIMED_OUT
+  }
+
+  public final JobSpec spec;
+  public final Outcome outcome;
+  public final int attempts;
+  public final int shapeGroupCount;
+  public final long elapsedMillis;
+  public final Throwable lastFailure;
+
+  public JobResult(JobSpec spec, Outcome outcome, int attempts, int shapeGroupCount, long elapsedMillis,
+                   Throwable lastFailure) {
+    this.spec = spec;
+    this.outcome = outcome;
+    this.attempts = attempts;
+    this.shapeGroupCount = shapeGroupCount;
+    this.elapsedMillis = elapsedMillis;
+    this.lastFailure = lastFailure;
+  }
+
+  @Override
+  public String toString() {
+    String result = spec.name + ": " + outcome + " after " + attempts + " attempt(s), "
+            + shapeGroupCount + " shape groups, " + elapsedMillis + " ms";
+    return lastFailure == null ? result : result + " (" + lastFailure + ")";
+  }
+
+}
@@ -0,0 +1,41 @@
+package net.origamimarie.penrose.batch;
+
+import net.origamimarie.penrose.coloring.ColoringScheme;
+import net.origamimarie.penrose.coloring.ShapeGroup.NeighborsType;
+import net.origamimarie.penrose.coloring.ShapeGroup.ShapeGroupType;
+import net.origamimarie.penrose.generation.Point;
+
+import java.io.File;
+
+// Everything one generate -> group -> color -> render run needs to know.
+// The seed decides everything random about the run, retries included, so a spec always makes the same picture.
+public class JobSpec {
+
+  public final String name;
+  public final Point low;
+  public final Point high;
+  public final ShapeGroupType shapeGroupType;
+  public final NeighborsType neighborsType;
+  public final ColoringScheme coloringScheme;
+  public final long seed;
+  public final File output;
+
+  public JobSpec(String name, Point low, Point high, ShapeGroupType shapeGroupType, NeighborsType neighborsType,
+                 ColoringScheme coloringScheme, long seed, File output) {
+    this.name = name;
+    this.low = low;
+    this.high = high;
+    this.shapeGroupType = shapeGroupType;
+    this.neighborsType = neighborsType;
+    this.coloringScheme = coloringScheme;
+    this.seed = seed;
+    this.output = output;
+  }
+
+  @Override
+  public String toString() {
+    return name + " (" + low + " to " + high + ", " + shapeGroupType + ", " + neighborsType + ", "
+            + coloringScheme + ", seed " + seed + ")";
+  }
+
+}
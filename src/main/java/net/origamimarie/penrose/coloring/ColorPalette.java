@@ -5,98 +5,121 @@ import lombok.extern.slf4j.Slf4j;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
+// The colors a group could still be, as bits: bit i is the scheme's color i.
+// The scheme works out ahead of time which colors can go next to which,
+// so losing colors to a new neighbor is one AND, and counting what's left is one bitCount.
 @Slf4j
 public class ColorPalette implements Comparable<ColorPalette> {
 
-  private static Random random = new Random();
+  private static final int NO_COLOR = -1;
 
-  private List<ColorForPalette> colors;
-  private List<ColorForPalette> attemptedColors;
-  private Color currentColor = null;
+  private final ColoringScheme coloringScheme;
+  // Whoever's doing the coloring owns this, and every copy shares it.
+  private final SplittableRandom random;
+  private long colors;
+  private long attemptedColors = 0;
+  private int currentColor = NO_COLOR;
 
-  public ColorPalette(List<ColorForPalette> colors) {
+  public ColorPalette(ColoringScheme coloringScheme, SplittableRandom random) {
+    this(coloringScheme, random, coloringScheme.allColors);
+  }
+
+  private ColorPalette(ColoringScheme coloringScheme, SplittableRandom random, long colors) {
+    this.coloringScheme = coloringScheme;
+    this.random = random;
     this.colors = colors;
-    attemptedColors = new ArrayList<>(colors.size());
   }
 
   public ColorPalette copy() {
-    return new ColorPalette(new ArrayList<>(colors));
+    return new ColorPalette(coloringScheme, random, colors);
   }
 
   public Color getCurrentColor() {
-    return currentColor;
+    return currentColor == NO_COLOR ? null : coloringScheme.justTheColors.get(currentColor);
   }
 
   public List<Color> getUsableColors() {
-    List<Color> usableColors = new ArrayList<>(colors.size());
-    for(ColorForPalette usableColor : colors) {
-      usableColors.add(usableColor.color);
+    List<Color> usableColors = new ArrayList<>(Long.bitCount(colors));
+    for(long remaining = colors; remaining != 0; remaining &= remaining - 1) {
+      usableColors.add(coloringScheme.justTheColors.get(Long.numberOfTrailingZeros(remaining)));
     }
     return usableColors;
   }
 
   public void dumpAllButOne() {
-    while(colors.size() > 1) {
-      attemptedColors.add(colors.remove(random.nextInt(colors.size())));
+    if(Long.bitCount(colors) > 1) {
+      long keep = 1L << randomColor();
+      attemptedColors |= colors & ~keep;
+      colors = keep;
     }
   }
 
-  public Color useRandomColor() {
-    if(colors.size() == 0) {
-      ColoredShapeGroup.dumpToFile(true, null);
+  // The index of the color it picked.
+  public int useRandomColor() {
+    if(colors == 0) {
       throw new IllegalArgumentException("There are no available colors to use");
     }
-    ColorForPalette tempColorForPalette = colors.remove(random.nextInt(colors.size()));
-    attemptedColors.add(tempColorForPalette);
-    currentColor = tempColorForPalette.color;
+    currentColor = randomColor();
+    colors &= ~(1L << currentColor);
+    attemptedColors |= 1L << currentColor;
     return currentColor;
   }
 
+  // For when somebody else already picked.
+  void useColor(int color) {
+    currentColor = color;
+    colors &= ~(1L << color);
+    attemptedColors |= 1L << color;
+  }
+
+  // Whichever of the remaining colors, all equally likely.
+  private int randomColor() {
+    long remaining = colors;
+    for(int skip = random.nextInt(Long.bitCount(colors)); skip > 0; skip--) {
+      remaining &= remaining - 1;
+    }
+    return Long.numberOfTrailingZeros(remaining);
+  }
+
   /**
    * Remove from this palette the colors that can't exist next to the new neighbor.
    * If this currently has a color, there will be no effect.
-   * @param neighbor New neighbor that just moved in.
+   * @param neighbor Color index of the new neighbor that just moved in.
    * @return All of the colors that were removed because of the new neighbor.
    */
-  public List<ColorForPalette> informOfNewNeighbor(Color neighbor) {
-    if(currentColor != null) {
+  public long informOfNewNeighbor(int neighbor) {
+    if(currentColor != NO_COLOR) {
       log.debug("huh, this shouldn't be");
+      return 0;
     }
-    List<ColorForPalette> removedColors = new ArrayList<>(colors.size());
-    if(currentColor == null) {
-      for(int i = 0; i < colors.size(); i++) {
-        if(!colors.get(i).acceptableNeighbor(neighbor)) {
-          removedColors.add(colors.remove(i));
-          i--;
-        }
-      }
-    }
+    long removedColors = colors & ~coloringScheme.acceptableNextTo[neighbor];
+    colors &= ~removedColors;
     return removedColors;
   }
 
-  public void addBackColors(List<ColorForPalette> colorsForPalette) {
-    colors.addAll(colorsForPalette);
+  public void addBackColors(long colorsToAdd) {
+    colors |= colorsToAdd;
   }
 
   public void unsetColor() {
-    this.currentColor = null;
+    this.currentColor = NO_COLOR;
   }
 
   public void resetAttemptedColors() {
-    colors.addAll(attemptedColors);
-    attemptedColors.clear();
-    currentColor = null;
+    colors |= attemptedColors;
+    attemptedColors = 0;
+    currentColor = NO_COLOR;
   }
 
   public int remainingColorCount() {
-    return colors.size();
+    return Long.bitCount(colors);
   }
 
   @Override
   public int compareTo(ColorPalette cp) {
-    return Integer.compare(this.colors.size(), cp.colors.size());
+    return Integer.compare(remainingColorCount(), cp.remainingColorCount());
   }
 
 }
@@ -0,0 +1,265 @@
+package net.origamimarie.penrose.coloring;
+
+import lombok.extern.slf4j.Slf4j;
+import net.origamimarie.penrose.output.SvgOutput;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.Set;
+import java.util.Stack;
+import java.util.concurrent.ExecutorService;
+
+// One coloring job, and everything it needs that changes while it runs:
+// its own random (so the same seed colors the same groups the same way every time)
+// and its own debugging frames.
+// Nothing in here is shared, so separate engines can color separate tilings on separate threads.
+@Slf4j
+public class ColoringEngine {
+
+  private final SplittableRandom random;
+  private ColoringSolver solver = ColoringSolver.CHRONOLOGICAL;
+  private int portfolioWorkers = Runtime.getRuntime().availableProcessors();
+  private ExecutorService portfolioExecutor = ColoringPortfolio.SHARED_EXECUTOR;
+
+  // For dumping frames while debugging.  No prefix means no frames.
+  private String mostOfFileName = null;
+  private int fileNumberMod = 1;
+  private int fileNumberThreshold = 500000000;
+  private int fileNumber = 0;
+  private List<ColoredShapeGroup> currentDebuggingShapeGroups;
+  private ColoringScheme currentDebuggingColoringScheme;
+
+  public ColoringEngine() {
+    this(new SplittableRandom());
+  }
+
+  public ColoringEngine(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  public ColoringEngine(SplittableRandom random) {
+    this.random = random;
+  }
+
+  public void setSolver(ColoringSolver solver) {
+    this.solver = solver;
+  }
+
+  // How many solvers the PORTFOLIO solver races against each other.
+  public void setPortfolioWorkers(int portfolioWorkers) {
+    this.portfolioWorkers = portfolioWorkers;
+  }
+
+  // Where the PORTFOLIO solver runs its workers.  It's never shut down from in here,
+  // and it needs room for all of the workers at once, or the later ones just wait for the earlier ones.
+  public void setPortfolioExecutor(ExecutorService portfolioExecutor) {
+    this.portfolioExecutor = portfolioExecutor;
+  }
+
+  SplittableRandom getRandom() {
+    return random;
+  }
+
+  int getPortfolioWorkers() {
+    return portfolioWorkers;
+  }
+
+  ExecutorService getPortfolioExecutor() {
+    return portfolioExecutor;
+  }
+
+  // Something like "/some/directory/frame", which gets a number and ".html" tacked onto the end of it.
+  public void setDebugFramePrefix(String mostOfFileName) {
+    this.mostOfFileName = mostOfFileName;
+    fileNumber = 0;
+  }
+
+  public List<ColoredShapeGroup> colorShapeGroups(Collection<ShapeGroup> shapeGroups,
+                                                  ColoringScheme coloringScheme) {
+    ColorPalette originalPalette = new ColorPalette(coloringScheme, random);
+    List<ColoredShapeGroup> coloredShapeGroups = new ArrayList<>(shapeGroups.size());
+    // Prime all of the coloredShapeGroups
+    for(ShapeGroup tempShapeGroup : shapeGroups) {
+      coloredShapeGroups.add(new ColoredShapeGroup(tempShapeGroup, originalPalette.copy(), coloredShapeGroups.size()));
+    }
+    currentDebuggingColoringScheme = coloringScheme;
+    currentDebuggingShapeGroups = coloredShapeGroups;
+    return solver.color(this, coloredShapeGroups, coloringScheme);
+  }
+
+  // Most constrained group first (with islands and just-popped groups jumping the queue),
+  // and when a group runs out of colors, back up one frame at a time until it has some again.
+  List<ColoredShapeGroup> colorChronologically(List<ColoredShapeGroup> coloredShapeGroups) {
+    // Priorities change all the time, so the queue keeps track of where every group is,
+    // and a group gets moved up or down in place when its priority changes.
+    GroupQueue shapeGroupQueue = new GroupQueue(coloredShapeGroups.size());
+    for(ColoredShapeGroup group : coloredShapeGroups) {
+      shapeGroupQueue.update(group);
+    }
+
+    Stack<ColoringFrame> coloringFrameStack = new Stack<>();
+    long lostColors;
+
+    // We want to know what the first group is so we can do two things.
+    // 1.  Pick just one color for it, because if that color fails, we're done.
+    // 2.  Catch the problem if it fails, and report correctly.
+    ColoredShapeGroup firstGroup = shapeGroupQueue.peek();
+    firstGroup.getColorPalette().dumpAllButOne();
+
+    // By group id.
+    boolean[] shapesThatHaveBeenColored = new boolean[coloredShapeGroups.size()];
+    while(shapeGroupQueue.size() > 0) {
+      // Some colorings go around in circles for a long time, so let whoever's waiting give up on us.
+      if(Thread.currentThread().isInterrupted()) {
+        throw new IllegalStateException("Interrupted while coloring");
+      }
+      ColoredShapeGroup tempShapeGroup = shapeGroupQueue.poll();
+      // Now that it's being colored, it doesn't need priority.
+      tempShapeGroup.setLastPopQueueJumpPriority(false);
+      if(coloredShapeGroupWillFail(tempShapeGroup)) {
+        dumpToFile(true, null);
+      }
+      int tempColor = tempShapeGroup.useRandomColor();
+
+      dumpToFile(false, Collections.singletonList(tempShapeGroup));
+
+      Set<ShapeGroup> island = tempShapeGroup.getShapeGroup().getNeighboringIsland();
+
+      ColoringFrame frame = new ColoringFrame(tempShapeGroup.getColor(), tempShapeGroup);
+
+      // Looks like there's an island nearby.
+      // We should prioritize filling the island.
+      if(island != null) {
+        List<ColoredShapeGroup> islandPiecesForFrame = new ArrayList<>(island.size());
+        for(ShapeGroup islandGroup : island) {
+          // No need to requeue it if it's already high priority.
+          if(!islandGroup.getColoredShapeGroup().isIslandQueueJumpPriority()) {
+            islandPiecesForFrame.add(islandGroup.getColoredShapeGroup());
+            islandGroup.getColoredShapeGroup().setIslandQueueJumpPriority(true);
+            if(islandGroup.getColoredShapeGroup().getColor() != null) {
+              log.debug("Hey, this island shape has color in it!");
+            }
+            shapeGroupQueue.update(islandGroup.getColoredShapeGroup());
+          }
+        }
+        frame.setBridge(islandPiecesForFrame);
+      }
+
+
+      coloringFrameStack.push(frame);
+      shapesThatHaveBeenColored[tempShapeGroup.getId()] = true;
+      for(ShapeGroup neighborGroup : tempShapeGroup.getShapeGroup().getNeighbors()) {
+        if(!shapesThatHaveBeenColored[neighborGroup.getColoredShapeGroup().getId()]) {
+          lostColors = neighborGroup.getColoredShapeGroup().informOfNewNeighbor(tempColor);
+
+          // Mess with its priority, then move it to where it goes now.
+          // No point recording the removing of color options if none were removed.
+          if(lostColors != 0) {
+            frame.addGroupAndLostColors(neighborGroup.getColoredShapeGroup(), lostColors);
+          }
+          neighborGroup.getColoredShapeGroup().recalculateNullNeighborRatio();
+          if(neighborGroup.getColoredShapeGroup().getColor() != null) {
+            log.debug("Hey, this neighborGroup has color in it!");
+          }
+          shapeGroupQueue.update(neighborGroup.getColoredShapeGroup());
+
+
+          ColoringFrame deColoredFrame = null;
+          // Woops.  We've treed ourselves.  Time to pop until we have a workable solution.
+          if(coloredShapeGroupWillFail(neighborGroup.getColoredShapeGroup())) {
+            do {
+              if(deColoredFrame != null) {
+                // This means we're not on the first go-around, so we should reset colors.
+                deColoredFrame.groupThatGotColored.getColorPalette().resetAttemptedColors();
+              }
+              // If deColoredFrame is null, we're popping the last in a series of bad choices.
+              // It's likely that we should prioritize this item higher so that it can get tried
+              // earlier next round.
+              deColoredFrame = popStackOntoQueue(coloringFrameStack, shapeGroupQueue,
+                      deColoredFrame == null);
+              dumpToFile(false, null);
+              checkFirstGroupAndThrow(deColoredFrame.groupThatGotColored, firstGroup);
+              shapesThatHaveBeenColored[deColoredFrame.groupThatGotColored.getId()] = false;
+            } while(coloredShapeGroupWillFail(deColoredFrame.groupThatGotColored));
+
+            // Don't keep trying to color neighbors, we've undone all of that.
+            break;
+          }
+        }
+      }
+      dumpToFile(false, null);
+    }
+
+    return coloredShapeGroups;
+  }
+
+  private static boolean coloredShapeGroupWillFail(ColoredShapeGroup coloredShapeGroup) {
+    return coloredShapeGroup.getColorPalette().remainingColorCount() == 0;
+  }
+
+  private static void checkFirstGroupAndThrow(ColoredShapeGroup groupThatIsOutOfColors, ColoredShapeGroup firstGroup) {
+    if(groupThatIsOutOfColors == firstGroup) {
+      throw new IllegalArgumentException("Sorry!  Your coloring scheme could not be completed");
+    }
+  }
+
+  public void dumpToFile(boolean override, Collection<ColoredShapeGroup> extraGroups) {
+    if(mostOfFileName == null || currentDebuggingShapeGroups == null) {
+      return;
+    }
+    int currentFileNum = fileNumber++;
+    if(currentFileNum > fileNumberThreshold) {
+      fileNumberMod = 1;
+    }
+    if(currentFileNum % fileNumberMod == 0 || override) {
+      try {
+        String previous = mostOfFileName + (currentFileNum-fileNumberMod) + ".html";
+        File file = new File(mostOfFileName + currentFileNum + ".html");
+        String next = mostOfFileName + (currentFileNum+fileNumberMod) + ".html";
+        List<ColoredShapeGroup> groupsToDump = currentDebuggingShapeGroups;
+        if(extraGroups != null) {
+          groupsToDump = new ArrayList<>(currentDebuggingShapeGroups);
+          groupsToDump.addAll(extraGroups);
+        }
+        SvgOutput.shapeGroupsToSvgFile(file, groupsToDump, 30, true, currentDebuggingColoringScheme.justTheColors, 0.3, previous, next);
+      } catch (Exception ignored) {
+        log.debug("Looks like there was an actual exception here");
+        ignored.printStackTrace();
+      }
+    }
+  }
+
+  // This does the queue manipulation in addition to the stack manipulation,
+  // because every group whose color counts change here needs moving to its new place in the queue.
+  private static ColoringFrame popStackOntoQueue(Stack<ColoringFrame> frameStack,
+                                                 GroupQueue queue,
+                                                 boolean lastPopQueueJumpPriority) {
+    ColoringFrame frame = frameStack.pop();
+    frame.groupThatGotColored.getColorPalette().unsetColor();
+    frame.groupThatGotColored.setLastPopQueueJumpPriority(lastPopQueueJumpPriority);
+    queue.update(frame.groupThatGotColored);
+    // Give the colors back to these shapeGroups, because using the color in question was a bad idea.
+    for(int i = 0; i < frame.groupsThatLostColors.size(); i++) {
+      ColoredShapeGroup group = frame.groupsThatLostColors.get(i);
+      group.addBackColors(frame.lostColors[i]);
+      // This group's neighbor just lost its color, so this number will change.
+      group.recalculateNullNeighborRatio();
+      if(group.getColor() != null) {
+        log.debug("Frame neighbor has color in it!");
+      }
+      queue.update(group);
+    }
+    if(frame.bridgeCreation) {
+      for(ColoredShapeGroup group : frame.islandShapesThatJumpedTheQueue) {
+        group.setIslandQueueJumpPriority(false);
+        queue.update(group);
+      }
+    }
+    return frame;
+  }
+
+}
@@ -1,15 +1,17 @@
 package net.origamimarie.penrose.coloring;
 
 import java.awt.Color;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public class ColoringFrame {
 
   public Color color;
   public ColoredShapeGroup groupThatGotColored;
-  public Map<ColoredShapeGroup, List<ColorForPalette>> groupsAndTheirLostColors;
+  // The neighbors that lost colors, and which colors each of them lost (as palette bits), in the same order.
+  public List<ColoredShapeGroup> groupsThatLostColors;
+  public long[] lostColors;
 
   public boolean bridgeCreation;
   public List<ColoredShapeGroup> islandShapesThatJumpedTheQueue;
@@ -18,7 +20,8 @@ public class ColoringFrame {
   public ColoringFrame(Color color, ColoredShapeGroup groupThatGotColored) {
     this.color = color;
     this.groupThatGotColored = groupThatGotColored;
-    this.groupsAndTheirLostColors = new HashMap<>();
+    this.groupsThatLostColors = new ArrayList<>();
+    this.lostColors = new long[4];
   }
 
   public void setBridge(List<ColoredShapeGroup> islandShapesThatJumpedTheQueue) {
@@ -26,8 +29,12 @@ public class ColoringFrame {
     this.islandShapesThatJumpedTheQueue = islandShapesThatJumpedTheQueue;
   }
 
-  public void addGroupAndLostColors(ColoredShapeGroup group, List<ColorForPalette> lostColors) {
-    groupsAndTheirLostColors.put(group, lostColors);
+  public void addGroupAndLostColors(ColoredShapeGroup group, long colors) {
+    if(groupsThatLostColors.size() == lostColors.length) {
+      lostColors = Arrays.copyOf(lostColors, lostColors.length * 2);
+    }
+    lostColors[groupsThatLostColors.size()] = colors;
+    groupsThatLostColors.add(group);
   }
 
 }
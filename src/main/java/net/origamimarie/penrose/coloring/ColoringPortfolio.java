@@ -0,0 +1,79 @@
+package net.origamimarie.penrose.coloring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A handful of DSatur solvers racing on the same graph, each with its own random, tie-breaking, and restarts.
+// Solve times on the hard schemes have a long tail, and the fastest of a handful is a lot more predictable
+// than any one of them.  The first one done wins, and the rest get interrupted.
+// Which one wins depends on timing, so the same seed doesn't always give the same colors.
+class ColoringPortfolio {
+
+  // Dead ends in a worker's shortest run between restarts.
+  static final long RESTART_BASE = 100;
+
+  // Workers run here unless the engine was handed an executor of its own.
+  // Threads hang around between colorings and go away once they've been idle for a while.
+  private static final AtomicInteger threadCount = new AtomicInteger();
+  static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "coloring-portfolio-" + threadCount.getAndIncrement());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final NeighborGraph graph;
+  private final ColoringScheme coloringScheme;
+  private final SplittableRandom random;
+  private final int workerCount;
+  private final ExecutorService executor;
+
+  ColoringPortfolio(NeighborGraph graph, ColoringScheme coloringScheme, SplittableRandom random, int workerCount,
+                    ExecutorService executor) {
+    if(workerCount < 1) {
+      throw new IllegalArgumentException("A portfolio needs at least one worker, not " + workerCount);
+    }
+    this.graph = graph;
+    this.coloringScheme = coloringScheme;
+    this.random = random;
+    this.workerCount = workerCount;
+    this.executor = executor;
+  }
+
+  // A color index for every group, by id.
+  int[] solve() {
+    // The executor can outlive this coloring, so cancel the losers one by one instead of shutting it down.
+    CompletionService<int[]> finished = new ExecutorCompletionService<>(executor);
+    List<Future<int[]>> workers = new ArrayList<>(workerCount);
+    try {
+      for(int worker = 0; worker < workerCount; worker++) {
+        // Which of these pays off depends on the scheme, so do both.
+        boolean maintainArcConsistency = worker % 2 == 1;
+        DSaturSolver solver = new DSaturSolver(graph, coloringScheme, random.split(), maintainArcConsistency, RESTART_BASE);
+        workers.add(finished.submit(solver::solve));
+      }
+      // Whatever comes back first settles it, including a worker that searched everything and found nothing.
+      return finished.take().get();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while coloring", e);
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      }
+      throw new IllegalStateException("Coloring worker failed", e.getCause());
+    } finally {
+      for(Future<int[]> worker : workers) {
+        worker.cancel(true);
+      }
+    }
+  }
+
+}
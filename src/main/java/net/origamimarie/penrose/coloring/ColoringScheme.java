@@ -65,11 +65,44 @@ public enum ColoringScheme {
       for(ColorForPalette paletteColor : scheme.colorsForPalette) {
         scheme.justTheColors.add(paletteColor.color);
       }
+      scheme.compile();
     }
   }
 
   public List<ColorForPalette> colorsForPalette;
   public List<Color> justTheColors;
+  // Palettes are bitsets of color indexes, so a scheme can only have as many colors as a long has bits.
+  // Bit i of acceptableNextTo[n] is set if color i is fine next to a neighbor colored n.
+  long[] acceptableNextTo;
+  // The same, but going both ways: bit i of compatibleWith[n] is set if colors i and n can be neighbors
+  // as long as one of them is fine with the other.  Solvers that don't color in any fixed order need this.
+  long[] compatibleWith;
+  long allColors;
+
+  // Ask every color about every other color once, up front,
+  // so coloring never has to look through the whitelists and blacklists.
+  private void compile() {
+    int colorCount = colorsForPalette.size();
+    if(colorCount > Long.SIZE) {
+      throw new IllegalStateException(this + " has " + colorCount + " colors, but palettes only have room for " + Long.SIZE);
+    }
+    allColors = colorCount == Long.SIZE ? -1L : (1L << colorCount) - 1;
+    acceptableNextTo = new long[colorCount];
+    for(int neighbor = 0; neighbor < colorCount; neighbor++) {
+      for(int color = 0; color < colorCount; color++) {
+        if(colorsForPalette.get(color).acceptableNeighbor(justTheColors.get(neighbor))) {
+          acceptableNextTo[neighbor] |= 1L << color;
+        }
+      }
+    }
+    compatibleWith = new long[colorCount];
+    for(int neighbor = 0; neighbor < colorCount; neighbor++) {
+      compatibleWith[neighbor] |= acceptableNextTo[neighbor];
+      for(long remaining = acceptableNextTo[neighbor]; remaining != 0; remaining &= remaining - 1) {
+        compatibleWith[Long.numberOfTrailingZeros(remaining)] |= 1L << neighbor;
+      }
+    }
+  }
 
   private static <T> List<T> copyOutItems(List<T> list, int start, int count) {
     List<T> result = new ArrayList<>();
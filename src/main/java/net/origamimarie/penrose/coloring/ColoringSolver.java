@@ -0,0 +1,58 @@
+package net.origamimarie.penrose.coloring;
+
+import java.util.List;
+
+// How a ColoringEngine goes about finding colors for its groups.
+public enum ColoringSolver {
+
+  // The original: most constrained group next, islands first,
+  // and backing up one frame at a time when a group runs out of colors.
+  // Debugging frames only come from this one.
+  CHRONOLOGICAL {
+    @Override
+    List<ColoredShapeGroup> color(ColoringEngine engine, List<ColoredShapeGroup> groups, ColoringScheme scheme) {
+      return engine.colorChronologically(groups);
+    }
+  },
+
+  // Fewest colors left next (DSatur), and when a group runs out of colors,
+  // jump straight back to the most recent group that actually had something to do with it.
+  // Two neighbors' colors are fine together if either one accepts the other,
+  // which is what CHRONOLOGICAL ends up allowing, whichever one it happens to color second.
+  DSATUR_BACKJUMPING {
+    @Override
+    List<ColoredShapeGroup> color(ColoringEngine engine, List<ColoredShapeGroup> groups, ColoringScheme scheme) {
+      return useColors(groups, new DSaturSolver(new NeighborGraph(groups), scheme, engine.getRandom(), false, 0).solve());
+    }
+  },
+
+  // The same, but after every color it keeps taking out colors that can't go with anything
+  // an uncolored neighbor has left, until nothing changes.  More work per color, far fewer dead ends
+  // on whitelist schemes where the domains shrink fast.
+  DSATUR_ARC_CONSISTENT {
+    @Override
+    List<ColoredShapeGroup> color(ColoringEngine engine, List<ColoredShapeGroup> groups, ColoringScheme scheme) {
+      return useColors(groups, new DSaturSolver(new NeighborGraph(groups), scheme, engine.getRandom(), true, 0).solve());
+    }
+  },
+
+  // Several of the DSatur solvers at once on separate threads, restarting on a Luby schedule,
+  // and the first one to finish wins.  Slow unlucky runs stop mattering, so it takes about as long every time.
+  PORTFOLIO {
+    @Override
+    List<ColoredShapeGroup> color(ColoringEngine engine, List<ColoredShapeGroup> groups, ColoringScheme scheme) {
+      return useColors(groups, new ColoringPortfolio(new NeighborGraph(groups), scheme, engine.getRandom(),
+              engine.getPortfolioWorkers(), engine.getPortfolioExecutor()).solve());
+    }
+  };
+
+  abstract List<ColoredShapeGroup> color(ColoringEngine engine, List<ColoredShapeGroup> groups, ColoringScheme scheme);
+
+  private static List<ColoredShapeGroup> useColors(List<ColoredShapeGroup> groups, int[] colors) {
+    for(ColoredShapeGroup group : groups) {
+      group.getColorPalette().useColor(colors[group.getId()]);
+    }
+    return groups;
+  }
+
+}
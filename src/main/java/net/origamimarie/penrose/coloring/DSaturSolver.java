@@ -0,0 +1,453 @@
+package net.origamimarie.penrose.coloring;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+// Colors groups one at a time, always picking the uncolored group with the fewest colors left
+// (ties go to the one with the most uncolored neighbors, like DSatur), and trying its colors in random order.
+// Coloring a group takes the colors that don't go with it out of its uncolored neighbors right away,
+// so running out shows up as soon as it happens.
+// When some group does run out, every group that took colors away from it gets the blame,
+// and the search jumps straight back to the most recent one of those, uncoloring everything in between.
+// Anything colored after that group had nothing to do with the problem, so there's no point trying its other colors.
+// With arc consistency on, every uncolored group also loses whatever colors no longer go with anything
+// its uncolored neighbors have left, and so on outward, so dead ends a few groups away show up right away too.
+// With restarts on, a run that hits too many dead ends throws everything away and starts over
+// with different tie-breaking, on a Luby schedule (1, 1, 2, 1, 1, 2, 4, ... times the base),
+// so one unlucky early choice can't keep it busy forever.
+// Everything is by group id, and the only thing that grows is the undo trail.
+class DSaturSolver {
+
+  private static final int NONE = -1;
+
+  private final NeighborGraph graph;
+  private final long[] compatibleWith;
+  private final long allColors;
+  private final SplittableRandom random;
+  private final boolean maintainArcConsistency;
+  // Dead ends allowed in the shortest run, or 0 for no restarts.
+  private final long restartBase;
+  private long deadEnds = 0;
+
+  // By group id.
+  private final int[][] neighbors;
+  // Last stop for ties, shuffled at every restart.
+  private final int[] tieBreaks;
+  private final long[] domains;
+  private final long[] untried;
+  private final int[] colors;
+  private final int[] uncoloredNeighbors;
+  // The trail entries that took colors out of each domain, oldest first.
+  // Every entry takes out at least one color, so there can't be more of these than there are colors.
+  private final int[][] prunedBy;
+  private final int[] prunedByCount;
+  // The levels that have been blamed for this group's colors not working out.
+  private final BitSet[] conflicts;
+
+  // By level.
+  private final int[] groupAtLevel;
+  private final int[] trailStartAtLevel;
+
+  // Every color taken out of every domain, so a level's worth can be put back.
+  // A group's level is how many groups were colored before it.
+  // Each entry is blamed on the level it happened at, unless it has a whole set of levels to blame instead,
+  // which is what happens when arc consistency takes colors out because a neighbor had already lost some.
+  private int[] trailGroups;
+  private long[] trailRemoved;
+  private int[] trailLevels;
+  private BitSet[] trailBlame;
+  private int trailSize = 0;
+
+  // Groups whose domains shrank, and whose uncolored neighbors need another look.
+  private final int[] arcQueue;
+  private final boolean[] inArcQueue;
+  private int arcQueueStart = 0;
+  private int arcQueueSize = 0;
+
+  // The uncolored groups that aren't being worked on, fewest colors left first.
+  private final int[] heap;
+  private final int[] heapPositions;
+  private int heapSize = 0;
+  // The group at the current level, which stays out of the heap even while it's uncolored.
+  private int workingOn = NONE;
+
+  DSaturSolver(NeighborGraph graph, ColoringScheme coloringScheme, SplittableRandom random,
+               boolean maintainArcConsistency, long restartBase) {
+    this.graph = graph;
+    this.compatibleWith = coloringScheme.compatibleWith;
+    this.allColors = coloringScheme.allColors;
+    this.random = random;
+    this.maintainArcConsistency = maintainArcConsistency;
+    this.restartBase = restartBase;
+    int groupCount = graph.size();
+    int colorCount = Long.bitCount(coloringScheme.allColors);
+    neighbors = new int[groupCount][];
+    tieBreaks = new int[groupCount];
+    domains = new long[groupCount];
+    untried = new long[groupCount];
+    colors = new int[groupCount];
+    uncoloredNeighbors = new int[groupCount];
+    prunedBy = new int[groupCount][];
+    prunedByCount = new int[groupCount];
+    conflicts = new BitSet[groupCount];
+    groupAtLevel = new int[groupCount];
+    trailStartAtLevel = new int[groupCount];
+    trailGroups = new int[Math.max(16, groupCount)];
+    trailRemoved = new long[trailGroups.length];
+    trailLevels = new int[trailGroups.length];
+    trailBlame = new BitSet[trailGroups.length];
+    arcQueue = new int[groupCount];
+    inArcQueue = new boolean[groupCount];
+    heap = new int[groupCount];
+    heapPositions = new int[groupCount];
+    for(int group = 0; group < groupCount; group++) {
+      neighbors[group] = graph.neighborsOf(group);
+      tieBreaks[group] = group;
+      prunedBy[group] = new int[colorCount];
+      conflicts[group] = new BitSet();
+    }
+  }
+
+  // A color index for every group, by id.
+  int[] solve() {
+    if(graph.size() == 0) {
+      return colors;
+    }
+    int runs = 1;
+    long deadEndLimit = restartBase == 0 ? Long.MAX_VALUE : restartBase * luby(runs);
+    reset();
+    int level = 0;
+    int current = heapPoll();
+    startLevel(current, level);
+    while(true) {
+      // Hard schemes can still take a long time, so let whoever's waiting give up on us.
+      if(Thread.currentThread().isInterrupted()) {
+        throw new IllegalStateException("Interrupted while coloring");
+      }
+      if(deadEnds > deadEndLimit) {
+        runs++;
+        deadEndLimit = restartBase * luby(runs);
+        reset();
+        level = 0;
+        current = heapPoll();
+        startLevel(current, level);
+      }
+      if(tryNextColor(current, level)) {
+        level++;
+        current = heapPoll();
+        if(current == NONE) {
+          break;
+        }
+        startLevel(current, level);
+        continue;
+      }
+
+      // Out of colors.  Blame whoever took colors away from this group, and whoever got blamed for its earlier failures.
+      BitSet blame = (BitSet)conflicts[current].clone();
+      addBlame(current, blame);
+      int target = blame.previousSetBit(level - 1);
+      if(target < 0) {
+        throw new IllegalArgumentException("Sorry!  Your coloring scheme could not be completed");
+      }
+      conflicts[current].clear();
+      workingOn = NONE;
+      heapUpdate(current);
+      for(int skipped = level - 1; skipped > target; skipped--) {
+        int group = groupAtLevel[skipped];
+        undoLevel(skipped);
+        uncolor(group);
+        conflicts[group].clear();
+        heapUpdate(group);
+      }
+      level = target;
+      current = groupAtLevel[target];
+      workingOn = current;
+      blame.clear(target);
+      conflicts[current].or(blame);
+      undoLevel(target);
+      uncolor(current);
+    }
+
+    return colors;
+  }
+
+  // Back to nothing colored, with fresh tie-breaking.
+  private void reset() {
+    for(int i = tieBreaks.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = tieBreaks[i];
+      tieBreaks[i] = tieBreaks[j];
+      tieBreaks[j] = swap;
+    }
+    clearArcQueue();
+    Arrays.fill(trailBlame, 0, trailSize, null);
+    trailSize = 0;
+    deadEnds = 0;
+    heapSize = 0;
+    workingOn = NONE;
+    for(int group = 0; group < graph.size(); group++) {
+      domains[group] = allColors;
+      untried[group] = 0;
+      colors[group] = NONE;
+      uncoloredNeighbors[group] = neighbors[group].length;
+      prunedByCount[group] = 0;
+      conflicts[group].clear();
+      heapPositions[group] = NONE;
+    }
+    for(int group = 0; group < graph.size(); group++) {
+      heapUpdate(group);
+    }
+  }
+
+  // 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ... for runs starting at 1.
+  static long luby(int run) {
+    int power = 1;
+    while((1L << power) - 1 < run) {
+      power++;
+    }
+    if((1L << power) - 1 == run) {
+      return 1L << (power - 1);
+    }
+    return luby(run - (1 << (power - 1)) + 1);
+  }
+
+  private void startLevel(int group, int level) {
+    groupAtLevel[level] = group;
+    workingOn = group;
+    trailStartAtLevel[level] = trailSize;
+    untried[group] = domains[group];
+    conflicts[group].clear();
+  }
+
+  // Colors the group with the next of its untried colors that doesn't leave a neighbor with nothing.
+  // False if there's none left.
+  private boolean tryNextColor(int group, int level) {
+    while(untried[group] != 0) {
+      int color = randomColor(untried[group]);
+      untried[group] &= ~(1L << color);
+      int wipedOut = colorAndPrune(group, color, level);
+      if(wipedOut == NONE) {
+        return true;
+      }
+      // Whoever else took colors away from that neighbor had a hand in this too.
+      addBlame(wipedOut, conflicts[group]);
+      conflicts[group].clear(level);
+      undoLevel(level);
+      uncolor(group);
+      deadEnds++;
+    }
+    return false;
+  }
+
+  // The neighbor that ran out of colors, or NONE.
+  private int colorAndPrune(int group, int color, int level) {
+    colors[group] = color;
+    for(int neighbor : neighbors[group]) {
+      uncoloredNeighbors[neighbor]--;
+      heapUpdate(neighbor);
+    }
+    for(int neighbor : neighbors[group]) {
+      if(colors[neighbor] != NONE) {
+        continue;
+      }
+      long removed = domains[neighbor] & ~compatibleWith[color];
+      if(removed != 0) {
+        prune(neighbor, removed, level, null);
+        if(domains[neighbor] == 0) {
+          clearArcQueue();
+          return neighbor;
+        }
+      }
+    }
+    return maintainArcConsistency ? propagate(level) : NONE;
+  }
+
+  // AC-3 over the groups that lost colors.  A color stays in a group's domain only if
+  // every uncolored neighbor still has some color it goes with.
+  // The group that ran out of colors, or NONE.
+  private int propagate(int level) {
+    while(arcQueueSize > 0) {
+      int changed = arcQueue[arcQueueStart];
+      arcQueueStart = (arcQueueStart + 1) % arcQueue.length;
+      arcQueueSize--;
+      inArcQueue[changed] = false;
+      long supported = 0;
+      for(long remaining = domains[changed]; remaining != 0; remaining &= remaining - 1) {
+        supported |= compatibleWith[Long.numberOfTrailingZeros(remaining)];
+      }
+      BitSet blame = null;
+      for(int neighbor : neighbors[changed]) {
+        if(colors[neighbor] != NONE) {
+          continue;
+        }
+        long removed = domains[neighbor] & ~supported;
+        if(removed != 0) {
+          // Whatever shrank this group's domain is what's taking colors from its neighbor.
+          if(blame == null) {
+            blame = new BitSet();
+            addBlame(changed, blame);
+          }
+          prune(neighbor, removed, level, blame);
+          if(domains[neighbor] == 0) {
+            clearArcQueue();
+            return neighbor;
+          }
+        }
+      }
+    }
+    return NONE;
+  }
+
+  private void prune(int group, long removed, int level, BitSet blame) {
+    domains[group] &= ~removed;
+    prunedBy[group][prunedByCount[group]++] = trailSize;
+    pushTrail(group, removed, level, blame);
+    heapUpdate(group);
+    if(maintainArcConsistency && !inArcQueue[group]) {
+      inArcQueue[group] = true;
+      arcQueue[(arcQueueStart + arcQueueSize) % arcQueue.length] = group;
+      arcQueueSize++;
+    }
+  }
+
+  private void clearArcQueue() {
+    for(; arcQueueSize > 0; arcQueueSize--) {
+      inArcQueue[arcQueue[arcQueueStart]] = false;
+      arcQueueStart = (arcQueueStart + 1) % arcQueue.length;
+    }
+  }
+
+  // Every level that had a hand in taking colors out of this group's domain.
+  private void addBlame(int group, BitSet blame) {
+    for(int i = 0; i < prunedByCount[group]; i++) {
+      int entry = prunedBy[group][i];
+      if(trailBlame[entry] == null) {
+        blame.set(trailLevels[entry]);
+      } else {
+        blame.or(trailBlame[entry]);
+      }
+    }
+  }
+
+  private void uncolor(int group) {
+    colors[group] = NONE;
+    for(int neighbor : neighbors[group]) {
+      uncoloredNeighbors[neighbor]++;
+      heapUpdate(neighbor);
+    }
+  }
+
+  private void pushTrail(int group, long removed, int level, BitSet blame) {
+    if(trailSize == trailGroups.length) {
+      trailGroups = Arrays.copyOf(trailGroups, trailSize * 2);
+      trailRemoved = Arrays.copyOf(trailRemoved, trailSize * 2);
+      trailLevels = Arrays.copyOf(trailLevels, trailSize * 2);
+      trailBlame = Arrays.copyOf(trailBlame, trailSize * 2);
+    }
+    trailGroups[trailSize] = group;
+    trailRemoved[trailSize] = removed;
+    trailLevels[trailSize] = level;
+    trailBlame[trailSize] = blame;
+    trailSize++;
+  }
+
+  private void undoLevel(int level) {
+    while(trailSize > trailStartAtLevel[level]) {
+      trailSize--;
+      int group = trailGroups[trailSize];
+      domains[group] |= trailRemoved[trailSize];
+      trailBlame[trailSize] = null;
+      prunedByCount[group]--;
+      heapUpdate(group);
+    }
+  }
+
+  private int randomColor(long colorBits) {
+    for(int skip = random.nextInt(Long.bitCount(colorBits)); skip > 0; skip--) {
+      colorBits &= colorBits - 1;
+    }
+    return Long.numberOfTrailingZeros(colorBits);
+  }
+
+  // Fewer colors left first, then more uncolored neighbors, then the shuffled tie-breaks so it always comes out the same.
+  private boolean before(int a, int b) {
+    int aColors = Long.bitCount(domains[a]);
+    int bColors = Long.bitCount(domains[b]);
+    if(aColors != bColors) {
+      return aColors < bColors;
+    }
+    if(uncoloredNeighbors[a] != uncoloredNeighbors[b]) {
+      return uncoloredNeighbors[a] > uncoloredNeighbors[b];
+    }
+    return tieBreaks[a] < tieBreaks[b];
+  }
+
+  private int heapPoll() {
+    if(heapSize == 0) {
+      return NONE;
+    }
+    int first = heap[0];
+    heapPositions[first] = NONE;
+    heapSize--;
+    if(heapSize > 0) {
+      heap[0] = heap[heapSize];
+      heapPositions[heap[0]] = 0;
+      siftDown(0);
+    }
+    return first;
+  }
+
+  // Only uncolored groups that aren't being worked on belong in the heap,
+  // so this moves a group that's in there and adds an uncolored one that isn't.
+  private void heapUpdate(int group) {
+    int position = heapPositions[group];
+    if(position == NONE) {
+      if(colors[group] != NONE || group == workingOn) {
+        return;
+      }
+      position = heapSize++;
+      heap[position] = group;
+      heapPositions[group] = position;
+    }
+    siftDown(siftUp(position));
+  }
+
+  private int siftUp(int position) {
+    int group = heap[position];
+    while(position > 0) {
+      int parent = (position - 1) / 2;
+      if(!before(group, heap[parent])) {
+        break;
+      }
+      heap[position] = heap[parent];
+      heapPositions[heap[position]] = position;
+      position = parent;
+    }
+    heap[position] = group;
+    heapPositions[group] = position;
+    return position;
+  }
+
+  private void siftDown(int position) {
+    int group = heap[position];
+    while(true) {
+      int child = position * 2 + 1;
+      if(child >= heapSize) {
+        break;
+      }
+      if(child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+        child++;
+      }
+      if(!before(heap[child], group)) {
+        break;
+      }
+      heap[position] = heap[child];
+      heapPositions[heap[position]] = position;
+      position = child;
+    }
+    heap[position] = group;
+    heapPositions[group] = position;
+  }
+
+}
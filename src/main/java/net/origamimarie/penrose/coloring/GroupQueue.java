@@ -0,0 +1,120 @@
+package net.origamimarie.penrose.coloring;
+
+import java.util.Arrays;
+
+// A binary heap of ColoredShapeGroups that knows where each of its groups is,
+// so a group whose priority just changed can be moved up or down in place
+// instead of hunting through the whole queue to take it out and put it back.
+// Groups are looked up by their id, which is their place in the list of groups being colored.
+class GroupQueue {
+
+  private static final int ABSENT = -1;
+
+  private ColoredShapeGroup[] heap;
+  // Where each group (by id) is in the heap, or ABSENT.
+  private final int[] positions;
+  private int size = 0;
+
+  GroupQueue(int groupCount) {
+    heap = new ColoredShapeGroup[Math.max(1, groupCount)];
+    positions = new int[groupCount];
+    Arrays.fill(positions, ABSENT);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean contains(ColoredShapeGroup group) {
+    return positions[group.getId()] != ABSENT;
+  }
+
+  ColoredShapeGroup peek() {
+    return size == 0 ? null : heap[0];
+  }
+
+  ColoredShapeGroup poll() {
+    if(size == 0) {
+      return null;
+    }
+    ColoredShapeGroup first = heap[0];
+    removeAt(0);
+    return first;
+  }
+
+  // Put the group where its priority says it goes now, adding it if it isn't in here.
+  void update(ColoredShapeGroup group) {
+    int position = positions[group.getId()];
+    if(position == ABSENT) {
+      if(size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      place(group, size++);
+      siftUp(size - 1);
+    } else if(!siftUp(position)) {
+      siftDown(position);
+    }
+  }
+
+  void remove(ColoredShapeGroup group) {
+    int position = positions[group.getId()];
+    if(position != ABSENT) {
+      removeAt(position);
+    }
+  }
+
+  private void removeAt(int position) {
+    positions[heap[position].getId()] = ABSENT;
+    size--;
+    if(position != size) {
+      place(heap[size], position);
+      heap[size] = null;
+      if(!siftUp(position)) {
+        siftDown(position);
+      }
+    } else {
+      heap[size] = null;
+    }
+  }
+
+  // True if it moved.
+  private boolean siftUp(int position) {
+    ColoredShapeGroup group = heap[position];
+    int start = position;
+    while(position > 0) {
+      int parent = (position - 1) / 2;
+      if(group.compareTo(heap[parent]) >= 0) {
+        break;
+      }
+      place(heap[parent], position);
+      position = parent;
+    }
+    place(group, position);
+    return position != start;
+  }
+
+  private void siftDown(int position) {
+    ColoredShapeGroup group = heap[position];
+    while(true) {
+      int child = position * 2 + 1;
+      if(child >= size) {
+        break;
+      }
+      if(child + 1 < size && heap[child + 1].compareTo(heap[child]) < 0) {
+        child++;
+      }
+      if(group.compareTo(heap[child]) <= 0) {
+        break;
+      }
+      place(heap[child], position);
+      position = child;
+    }
+    place(group, position);
+  }
+
+  private void place(ColoredShapeGroup group, int position) {
+    heap[position] = group;
+    positions[group.getId()] = position;
+  }
+
+}
@@ -0,0 +1,43 @@
+package net.origamimarie.penrose.coloring;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Who's next to whom, by group id, and nothing else.
+// It never changes once it's built, so any number of solvers on any number of threads can share one.
+final class NeighborGraph {
+
+  private final int[][] neighbors;
+
+  NeighborGraph(List<ColoredShapeGroup> groups) {
+    int groupCount = groups.size();
+    neighbors = new int[groupCount][];
+    for(int group = 0; group < groupCount; group++) {
+      ColoredShapeGroup coloredShapeGroup = groups.get(group);
+      if(coloredShapeGroup.getId() != group) {
+        throw new IllegalStateException("Group " + group + " thinks it's group " + coloredShapeGroup.getId());
+      }
+      int[] groupNeighbors = new int[coloredShapeGroup.getShapeGroup().getNeighbors().size()];
+      int count = 0;
+      for(ShapeGroup neighbor : coloredShapeGroup.getShapeGroup().getNeighbors()) {
+        // Only neighbors that are getting colored along with this one count.
+        ColoredShapeGroup coloredNeighbor = neighbor.getColoredShapeGroup();
+        if(coloredNeighbor != null && coloredNeighbor.getId() >= 0 && coloredNeighbor.getId() < groupCount
+                && groups.get(coloredNeighbor.getId()) == coloredNeighbor) {
+          groupNeighbors[count++] = coloredNeighbor.getId();
+        }
+      }
+      neighbors[group] = count == groupNeighbors.length ? groupNeighbors : Arrays.copyOf(groupNeighbors, count);
+    }
+  }
+
+  int size() {
+    return neighbors.length;
+  }
+
+  // Don't change what comes back.
+  int[] neighborsOf(int group) {
+    return neighbors[group];
+  }
+
+}
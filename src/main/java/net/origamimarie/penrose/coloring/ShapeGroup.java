@@ -1,31 +1,34 @@
 package net.origamimarie.penrose.coloring;
 
 import lombok.extern.slf4j.Slf4j;
+import net.origamimarie.penrose.generation.CyclotomicPoint;
 import net.origamimarie.penrose.generation.Point;
-import net.origamimarie.penrose.generation.Shape;
+import net.origamimarie.penrose.generation.TileStore;
 import net.origamimarie.penrose.generation.V;
 import net.origamimarie.penrose.generation.Vertex;
 import net.origamimarie.penrose.generation.Vwedge;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 @Slf4j
 public class ShapeGroup {
 
-  private List<Shape> shapes;
+  // The shapes are tile ids in the store, so there's no need for Shape or Vertex objects in here.
+  private TileStore store;
+  private int[] tiles;
   private GroupNeighborCircle neighborCircle;
   private ColoredShapeGroup coloredShapeGroup;
-  private Point[] shapePoints;
+  private CyclotomicPoint[] shapePoints;
 
-  public ShapeGroup(List<Shape> shapes) {
-    this.shapes = shapes;
+  public ShapeGroup(TileStore store, int[] tiles) {
+    this.store = store;
+    this.tiles = tiles;
     neighborCircle = new GroupNeighborCircle();
     calculateShapePoints();
   }
@@ -35,29 +38,37 @@ public class ShapeGroup {
     // They may loop around in a series of 5 shapes.
     // If the don't loop around, the center vertex needs to be generated too.
     // There's a duplicate point at the end.
-    int pointCount = shapes.size() == 5 ? 11 : shapes.size()*2 + 3;
-    shapePoints = new Point[pointCount];
+    int pointCount = tiles.length == 5 ? 11 : tiles.length*2 + 3;
+    shapePoints = new CyclotomicPoint[pointCount];
     int pointNumber = 0;
-    for(Shape shape : shapes) {
+    for(int tile : tiles) {
       // This is taking advantage of the fact that G0 and N0
       // resolve to the same vertex on Darts and Kites.
-      shapePoints[pointNumber] = shape.getVertex(Vwedge.G0).getLocation();
+      shapePoints[pointNumber] = store.getLocation(store.getTileVertex(tile, V.G.shapeBasedNumber));
       pointNumber++;
       // And of course, likewise with F0 and M0.
-      shapePoints[pointNumber] = shape.getVertex(Vwedge.F0).getLocation();
+      shapePoints[pointNumber] = store.getLocation(store.getTileVertex(tile, V.F.shapeBasedNumber));
       pointNumber++;
     }
     // Last point on last shape.
-    shapePoints[pointNumber] = shapes.get(shapes.size()-1).getVertex(Vwedge.E0).getLocation();
+    shapePoints[pointNumber] = store.getLocation(store.getTileVertex(tiles[tiles.length-1], V.E.shapeBasedNumber));
     pointNumber++;
     // Hit the center vertex and starting vertex again if we need to.
-    if(shapes.size() < 5) {
-      shapePoints[pointNumber] = shapes.get(0).getVertex(Vwedge.D0).getLocation();
+    if(tiles.length < 5) {
+      shapePoints[pointNumber] = store.getLocation(store.getTileVertex(tiles[0], V.D.shapeBasedNumber));
       pointNumber++;
-      shapePoints[pointNumber] = shapes.get(0).getVertex(Vwedge.G0).getLocation();
+      shapePoints[pointNumber] = store.getLocation(store.getTileVertex(tiles[0], V.G.shapeBasedNumber));
     }
   }
 
+  // Groups never share tiles, so the first tile id makes a fine hash.
+  // Unlike the identity hash, it comes out the same every run,
+  // so all of the sets of groups (and the coloring that walks them) do too.
+  @Override
+  public int hashCode() {
+    return tiles[0];
+  }
+
   public Set<ShapeGroup> getNeighboringIsland() {
     return neighborCircle.getNeighboringIsland();
   }
@@ -78,7 +89,7 @@ public class ShapeGroup {
     return neighborCircle.getNeighborsListCopy();
   }
 
-  public List<Point[]> getShapePoints() {
+  public List<CyclotomicPoint[]> getShapePoints() {
     return Collections.singletonList(shapePoints);
   }
 
@@ -87,27 +98,38 @@ public class ShapeGroup {
                                                            ShapeGroupType groupType,
                                                            NeighborsType neighborType,
                                                            Point low, Point high) {
-    Map<Shape, ShapeGroup> shapesAndShapeGroups = new HashMap<>();
-    // Get all the shape groups.
-    for(Vertex vertex : vertices) {
-      addAllNewGroupsFromVertex(vertex, groupType, shapesAndShapeGroups);
-    }
+    return generateShapeGroups(TileStore.fromVertices(vertices), groupType, neighborType, low, high);
+  }
 
-    // Add all of the shape group connections.
-    for(ShapeGroup shapeGroup : shapesAndShapeGroups.values()) {
-      shapeGroup.populateNeighbors(shapesAndShapeGroups, neighborType);
+  public static Collection<ShapeGroup> generateShapeGroups(TileStore store,
+                                                           ShapeGroupType groupType,
+                                                           NeighborsType neighborType,
+                                                           Point low, Point high) {
+    ShapeGroup[] shapeGroupsByTile = new ShapeGroup[store.getTileCount()];
+    // Get all the shape groups.
+    for(int vertex = 0; vertex < store.getVertexCount(); vertex++) {
+      addAllNewGroupsFromVertex(store, vertex, groupType, shapeGroupsByTile);
     }
 
     Set<ShapeGroup> set = new HashSet<>();
     // Remember, each group is represented multiple times because it is associated with multiple shapes.
-    set.addAll(shapesAndShapeGroups.values());
+    for(ShapeGroup shapeGroup : shapeGroupsByTile) {
+      if(shapeGroup != null) {
+        set.add(shapeGroup);
+      }
+    }
+
+    // Add all of the shape group connections.
+    for(ShapeGroup shapeGroup : set) {
+      shapeGroup.populateNeighbors(shapeGroupsByTile, neighborType);
+    }
 
     // Now to remove the groups that have nothing to do with the rectangle.
     List<ShapeGroup> shapeGroupsFromSet = new ArrayList<>(set);
     for(ShapeGroup shapeGroup : shapeGroupsFromSet) {
       boolean hasPointInside = false;
-      for(Point[] points : shapeGroup.getShapePoints()) {
-        for(Point point : points) {
+      for(CyclotomicPoint[] points : shapeGroup.getShapePoints()) {
+        for(CyclotomicPoint point : points) {
           if(point.isGreaterThanOrEqual(low) && point.isLessThanOrEqual(high)) {
             hasPointInside = true;
             break;
@@ -138,8 +160,7 @@ public class ShapeGroup {
   // which is to say that each vertex represents just one place on the edge of the group,
   // the group doesn't exist in two separate parts connected by their points.
   // The possibilities on non-contiguous shapeGroups just give me a headache.
-  public void populateNeighbors(Map<Shape, ShapeGroup> shapesAndShapeGroups,
-                                NeighborsType neighborsType) {
+  private void populateNeighbors(ShapeGroup[] shapeGroupsByTile, NeighborsType neighborsType) {
     // This gets meta pretty fast.
     // Hooo boy.
     // So fundamentally we need to walk around the shapeGroup and pick up neighbors as we go.
@@ -147,81 +168,83 @@ public class ShapeGroup {
 
     // Get a vertex that is on the edge of our shapeGroup.
     // That is a vertex that has at least one shape that is not in this group.
-    Vertex startingVertex = null;
-    for(Shape shape : shapes) {
-      for(Vertex vertex : shape.getVertices()) {
-        for(Shape vertexNeighbor : vertex.getWedges()) {
-          if(!shapes.contains(vertexNeighbor)) {
+    int startingVertex = -1;
+    for(int tile : tiles) {
+      for(int corner = 0; corner < 4 && startingVertex < 0; corner++) {
+        int vertex = store.getTileVertex(tile, corner);
+        for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
+          if(!containsTile(store.getWedgeTile(vertex, i))) {
             startingVertex = vertex;
             break;
           }
         }
-        if(startingVertex != null) {
-          break;
-        }
       }
-      if(startingVertex != null) {
+      if(startingVertex >= 0) {
         break;
       }
     }
 
-    // Now we have a set of vertices on the edge of this group.
-    // Let's figure out their order around the group.
-    List<Vertex> verticesInOrder = new ArrayList<>();
-    verticesInOrder.add(startingVertex);
-    Vertex currentVertex = startingVertex;
+    // Now walk the vertices on the edge of this group in counterclockwise order,
+    // adding each one's shapes to the circle of neighbors as we get to it.
+    List<Integer> neighborTilesWithDuplicates = new ArrayList<>();
+    int currentVertex = startingVertex;
+    addNeighborTilesAtVertex(currentVertex, neighborsType, neighborTilesWithDuplicates);
     do {
       // Check currentVertex's shapes for the clockwise-most shape in our group.
-      Shape[] vertexNeighborShapes = currentVertex.getWedges();
-      int nextShapeIndex = lowestIndexOfItemInCollection(vertexNeighborShapes, shapes);
+      int nextShapeIndex = lowestIndexOfGroupTile(currentVertex);
       // Okay, now we should have the next shape picked out.
-      Shape nextShape = vertexNeighborShapes[nextShapeIndex];
+      int nextTile = store.getWedgeTile(currentVertex, nextShapeIndex);
       // And then we can pretty easily get the next vertex.
       // It's the next counterclockwise vertex on this shape.
-      currentVertex = nextShape.getCounterclockwiseVertex(currentVertex);
-      verticesInOrder.add(currentVertex);
+      currentVertex = store.getCounterclockwiseVertex(nextTile, currentVertex);
+      addNeighborTilesAtVertex(currentVertex, neighborsType, neighborTilesWithDuplicates);
     } while(currentVertex != startingVertex);
 
-    // Whew.  Now we have all of the vertices in counterclockwise order around the group.
-    // It's time to walk around these vertices and add their shapes to the circle of neighbors.
-    List<Shape> shapesInOrderWithDuplicates = new ArrayList<>();
-    for(Vertex vertex : verticesInOrder) {
-      Shape[] vertexShapes = vertex.getWedges();
-      // Find out where our shapes end, going around this vertex.
-      // Then add one, and that's where to start getting neighbors.
-      int startingIndex = lowestIndexAboveCollectionStartingAt(vertex.getWedges(), shapes);
-      // What kind of neighbors do we want to get?
-      if(neighborsType == NeighborsType.EDGES) {
-        // Just the first neighbor.  That should be the one right next to us.
-        if(vertexShapes[startingIndex] != null) {
-          shapesInOrderWithDuplicates.add(vertexShapes[startingIndex]);
+    // And finally, adding the shape groups associated with these shapes in order should get what we wanted.
+    for(int tile : neighborTilesWithDuplicates) {
+      neighborCircle.addNeighborInOrder(shapeGroupsByTile[tile]);
+    }
+  }
+
+  private void addNeighborTilesAtVertex(int vertex, NeighborsType neighborsType, List<Integer> neighborTiles) {
+    // Find out where our shapes end, going around this vertex.
+    // Then add one, and that's where to start getting neighbors.
+    int startingIndex = lowestIndexAboveGroupTilesStartingAt(vertex);
+    // What kind of neighbors do we want to get?
+    if(neighborsType == NeighborsType.EDGES) {
+      // Just the first neighbor.  That should be the one right next to us.
+      if(store.getWedgeTile(vertex, startingIndex) != TileStore.NO_TILE) {
+        neighborTiles.add(store.getWedgeTile(vertex, startingIndex));
+      }
+    } else if(neighborsType == NeighborsType.VERTICES) {
+      // Now we have the counterclockwise start of shapes just after our group's shapes.
+      // Add until we get back around to our group's shapes.
+      // Since the eventual shapeGroups that these will turn into will be going into a set,
+      // don't worry that there will be overlap with the previous and next vertices' shapes.
+      for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
+        if(store.getWedgeTile(vertex, startingIndex) != TileStore.NO_TILE) {
+          neighborTiles.add(store.getWedgeTile(vertex, startingIndex));
         }
-      } else if(neighborsType == NeighborsType.VERTICES) {
-        // Now we have the counterclockwise start of shapes just after our group's shapes.
-        // Add until we get back around to our group's shapes.
-        // Since the eventual shapeGroups that these will turn into will be going into a set,
-        // don't worry that there will be overlap with the previous and next vertices' shapes.
-
-        for(int i = 0; i < vertexShapes.length; i++) {
-          if(vertexShapes[startingIndex] != null) {
-            shapesInOrderWithDuplicates.add(vertexShapes[startingIndex]);
-          }
-          startingIndex = (startingIndex + 1) % vertexShapes.length;
-          if(shapes.contains(vertexShapes[startingIndex])) {
-            break;
-          }
+        startingIndex = (startingIndex + 1) % Vertex.WEDGE_COUNT;
+        if(containsTile(store.getWedgeTile(vertex, startingIndex))) {
+          break;
         }
       }
     }
+  }
 
-    // And finally, adding the shape groups associated with these shapes in order should get what we wanted.
-    for(Shape shape : shapesInOrderWithDuplicates) {
-      neighborCircle.addNeighborInOrder(shapesAndShapeGroups.get(shape));
+  // Groups are at most five shapes, so a plain scan is plenty.
+  private boolean containsTile(int tile) {
+    for(int member : tiles) {
+      if(member == tile) {
+        return true;
+      }
     }
+    return false;
   }
 
-  private <T> int lowestIndexAboveCollectionStartingAt(T[] array, Collection<T> members) {
-    int length = array.length;
+  private int lowestIndexAboveGroupTilesStartingAt(int vertex) {
+    int length = Vertex.WEDGE_COUNT;
     int result = 0;
     // Yup, these three loops could probably be compressed into one,
     // at the cost of readability.
@@ -229,14 +252,14 @@ public class ShapeGroup {
 
     // Find the first instance of one of the members.
     for(int i = 0; i < length; i++) {
-      if(members.contains(array[result])) {
+      if(containsTile(store.getWedgeTile(vertex, result))) {
         break;
       }
       result = (result + 1) % length;
     }
     // Find the end of the streak of members.
     for(int i = 0; i < length; i++) {
-      if(!members.contains(array[result])) {
+      if(!containsTile(store.getWedgeTile(vertex, result))) {
         break;
       }
       result = (result + 1) % length;
@@ -244,7 +267,7 @@ public class ShapeGroup {
     // Find the first place that isn't one of the members.
     // It's possible that there are no places like that, in which case we'll return -1.
     for(int i = 0; i < length; i++) {
-      if(!members.contains(array[result])) {
+      if(!containsTile(store.getWedgeTile(vertex, result))) {
         return result;
       }
       result = (result + 1) % length;
@@ -253,19 +276,19 @@ public class ShapeGroup {
     return -1;
   }
 
-  private <T> int lowestIndexOfItemInCollection(T[] array, Collection<T> members) {
-    int length = array.length;
+  private int lowestIndexOfGroupTile(int vertex) {
+    int length = Vertex.WEDGE_COUNT;
     int result;
     // Find an member from the collection in the array.
     for(result = 0; result < length; result++) {
-      if(members.contains(array[result])) {
+      if(containsTile(store.getWedgeTile(vertex, result))) {
         break;
       }
     }
     // Find an item before this streak of collection members.
     for(int i = 0; i < length; i++) {
       result = (result - 1 + length) % length;
-      if(!members.contains(array[result])) {
+      if(!containsTile(store.getWedgeTile(vertex, result))) {
         return (result + 1) % length;
       }
     }
@@ -274,28 +297,28 @@ public class ShapeGroup {
   }
 
 
-  private static void addAllNewGroupsFromVertex(Vertex vertex, ShapeGroupType groupType,
-                                                Map<Shape, ShapeGroup> shapesAndShapeGroups) {
-    Shape[] shapeArray = vertex.getWedges();
-    Vwedge[] vwedges = vertex.getVwedges();
+  private static void addAllNewGroupsFromVertex(TileStore store, int vertex, ShapeGroupType groupType,
+                                                ShapeGroup[] shapeGroupsByTile) {
     for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
+      Vwedge vwedge = store.getVwedge(vertex, i);
 
       // We'll only find all of this shape's neighbors at the vertex with the D or K type of V.
-      if(vwedges[i] != null && (vwedges[i].v == V.D || vwedges[i].v == V.K)) {
-        if(!shapesAndShapeGroups.containsKey(shapeArray[i])) {
+      if(vwedge != null && (vwedge.v == V.D || vwedge.v == V.K)) {
+        int tile = store.getWedgeTile(vertex, i);
+        if(shapeGroupsByTile[tile] == null) {
           ShapeGroup tempShapeGroup;
           switch (groupType) {
             case STARS_AND_BALLS:
-              int start = findBeginningOfVType(vwedges, i);
-              tempShapeGroup = makeShapeGroupCounterclockwise(vwedges, shapeArray, start);
-              for(Shape tempShape : tempShapeGroup.shapes) {
-                shapesAndShapeGroups.put(tempShape, tempShapeGroup);
+              int start = findBeginningOfVType(store, vertex, i);
+              tempShapeGroup = makeShapeGroupCounterclockwise(store, vertex, start);
+              for(int tempTile : tempShapeGroup.tiles) {
+                shapeGroupsByTile[tempTile] = tempShapeGroup;
               }
               break;
 
             case SINGLE_SHAPES:
-              tempShapeGroup = makeSingleShapeGroup(shapeArray[i]);
-              shapesAndShapeGroups.put(shapeArray[i], tempShapeGroup);
+              tempShapeGroup = new ShapeGroup(store, new int[]{tile});
+              shapeGroupsByTile[tile] = tempShapeGroup;
               break;
           }
         }
@@ -303,12 +326,13 @@ public class ShapeGroup {
     }
   }
 
-  private static int findBeginningOfVType(Vwedge[] vwedges, int location) {
+  private static int findBeginningOfVType(TileStore store, int vertex, int location) {
     location = Vertex.normalizeWedgeNumber(location);
-    V v = vwedges[location].v;
+    V v = store.getVwedge(vertex, location).v;
     for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
       location = Vertex.normalizeWedgeNumber(location - 1);
-      if(vwedges[location] == null || vwedges[location].v != v) {
+      Vwedge vwedge = store.getVwedge(vertex, location);
+      if(vwedge == null || vwedge.v != v) {
         return location + 1;
       }
     }
@@ -316,28 +340,30 @@ public class ShapeGroup {
     return location;
   }
 
-  private static ShapeGroup makeShapeGroupCounterclockwise(Vwedge[] vwedges, Shape[] shapeArray,
-                                                           int location) {
-    List<Shape> tempShapes = new ArrayList<>();
+  private static ShapeGroup makeShapeGroupCounterclockwise(TileStore store, int vertex, int location) {
+    int[] tempTiles = new int[Vertex.WEDGE_COUNT];
+    int tileCount = 0;
     location = Vertex.normalizeWedgeNumber(location);
-    V v = vwedges[location].v;
+    V v = store.getVwedge(vertex, location).v;
     for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
-      if(vwedges[location] != null && vwedges[location].v == v) {
-        if(!tempShapes.contains(shapeArray[location])) {
-          tempShapes.add(shapeArray[location]);
+      Vwedge vwedge = store.getVwedge(vertex, location);
+      if(vwedge != null && vwedge.v == v) {
+        int tile = store.getWedgeTile(vertex, location);
+        boolean alreadyHaveIt = false;
+        for(int j = 0; j < tileCount; j++) {
+          alreadyHaveIt |= tempTiles[j] == tile;
+        }
+        if(!alreadyHaveIt) {
+          tempTiles[tileCount++] = tile;
         }
       } else {
         // Found the end of this streak of shapes.
-        return new ShapeGroup(tempShapes);
+        break;
       }
       location = Vertex.normalizeWedgeNumber(location + 1);
     }
-    // This means all the shapes were the same type.  Still valid.
-    return new ShapeGroup(tempShapes);
-  }
-
-  private static ShapeGroup makeSingleShapeGroup(Shape shape) {
-    return new ShapeGroup(Collections.singletonList(shape));
+    // If we got all the way around, all the shapes were the same type.  Still valid.
+    return new ShapeGroup(store, Arrays.copyOf(tempTiles, tileCount));
   }
 
   public enum ShapeGroupType {
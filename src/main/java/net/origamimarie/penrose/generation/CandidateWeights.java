@@ -0,0 +1,112 @@
+package net.origamimarie.penrose.generation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Keeps track of how often picking each vertex configuration ended in a rollback,
+// split up by how many open wedges the vertex had at the time,
+// and leans later random picks towards the ones that tend to work out.
+// The counts can be saved to a file and loaded back in, so the next run doesn't start from scratch.
+// Counts are atomic, so one of these can be shared by tilings on different threads.
+// A weight might read its attempts and rollbacks a count apart while someone's recording, which doesn't matter.
+public class CandidateWeights {
+
+  // Configuration ids are bit numbers in a long.
+  private static final int CONFIGURATIONS = Long.SIZE;
+  // Open wedge counts go from 0 to 10.
+  private static final int CONTEXTS = Vertex.WEDGE_COUNT + 1;
+
+  // By configuration * CONTEXTS + open wedges.
+  private final AtomicLongArray attempts;
+  private final AtomicLongArray rollbacks;
+
+  public CandidateWeights() {
+    attempts = new AtomicLongArray(CONFIGURATIONS * CONTEXTS);
+    rollbacks = new AtomicLongArray(CONFIGURATIONS * CONTEXTS);
+  }
+
+  // Chance of success, give or take.  Starts out at a half for everything (one made-up success and one made-up failure),
+  // so nothing ever gets ruled out entirely.
+  public double getWeight(int configuration, int openWedges) {
+    int i = configuration * CONTEXTS + openWedges;
+    long attemptCount = attempts.get(i);
+    return (attemptCount - rollbacks.get(i) + 1.0) / (attemptCount + 2.0);
+  }
+
+  // Pick one of the configurations in the mask, in proportion to the weights.
+  int choose(long possibleConfigurations, int openWedges, SplittableRandom random) {
+    double total = 0.0;
+    for(long remaining = possibleConfigurations; remaining != 0; remaining &= remaining - 1) {
+      total += getWeight(Long.numberOfTrailingZeros(remaining), openWedges);
+    }
+    double target = random.nextDouble() * total;
+    int configuration = Long.numberOfTrailingZeros(possibleConfigurations);
+    for(long remaining = possibleConfigurations; remaining != 0; remaining &= remaining - 1) {
+      configuration = Long.numberOfTrailingZeros(remaining);
+      target -= getWeight(configuration, openWedges);
+      if(target < 0) {
+        break;
+      }
+    }
+    // Rounding might leave a tiny bit of target at the end, in which case the last one it is.
+    return configuration;
+  }
+
+  void record(int configuration, int openWedges, boolean rolledBack) {
+    int i = configuration * CONTEXTS + openWedges;
+    attempts.incrementAndGet(i);
+    if(rolledBack) {
+      rollbacks.incrementAndGet(i);
+    }
+  }
+
+  // One line per configuration and open wedge count that's been tried: configuration, open wedges, attempts, rollbacks.
+  public void save(File file) throws IOException {
+    try(BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+      writer.append("# configuration openWedges attempts rollbacks\n");
+      for(int i = 0; i < attempts.length(); i++) {
+        long attemptCount = attempts.get(i);
+        if(attemptCount > 0) {
+          writer.append(String.format("%d %d %d %d%n", i / CONTEXTS, i % CONTEXTS, attemptCount, rollbacks.get(i)));
+        }
+      }
+    }
+  }
+
+  public static CandidateWeights load(File file) throws IOException {
+    CandidateWeights weights = new CandidateWeights();
+    try(BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while((line = reader.readLine()) != null) {
+        line = line.trim();
+        if(line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] parts = line.split("\\s+");
+        if(parts.length != 4) {
+          throw new IOException("Can't make sense of candidate weight line: " + line);
+        }
+        try {
+          int configuration = Integer.parseInt(parts[0]);
+          int openWedges = Integer.parseInt(parts[1]);
+          if(configuration < 0 || configuration >= CONFIGURATIONS || openWedges < 0 || openWedges >= CONTEXTS) {
+            throw new IOException("Candidate weight line out of range: " + line);
+          }
+          int i = configuration * CONTEXTS + openWedges;
+          weights.attempts.set(i, Long.parseLong(parts[2]));
+          weights.rollbacks.set(i, Long.parseLong(parts[3]));
+        } catch (NumberFormatException e) {
+          throw new IOException("Can't make sense of candidate weight line: " + line, e);
+        }
+      }
+    }
+    return weights;
+  }
+
+}
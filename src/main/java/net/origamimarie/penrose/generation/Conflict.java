@@ -0,0 +1,28 @@
+package net.origamimarie.penrose.generation;
+
+// Why a shape couldn't go in, and where.
+// Random generation runs into these thousands of times a run and just backs up and tries again,
+// so they get handed back like any other answer instead of thrown (no stack trace to fill in).
+public class Conflict {
+
+  public enum Reason {
+    // Two vertices at the same spot have different shapes in the same wedge.
+    INCOMPATIBLE_WEDGES,
+    // The shapes around a vertex don't match any of the vertex configurations.
+    NO_CONFIGURATION_LEFT
+  }
+
+  public final Reason reason;
+  public final CyclotomicPoint location;
+
+  public Conflict(Reason reason, CyclotomicPoint location) {
+    this.reason = reason;
+    this.location = location;
+  }
+
+  @Override
+  public String toString() {
+    return reason + " at " + location;
+  }
+
+}
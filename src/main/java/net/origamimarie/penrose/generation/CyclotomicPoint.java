@@ -0,0 +1,139 @@
+package net.origamimarie.penrose.generation;
+
+// An exact location in the tiling.
+// Every edge of every kite and dart points along one of ten unit vectors (powers of zeta,
+// the 36 degree rotation), so every vertex is a whole-number combination of those vectors.
+// Only four of them are needed, because zeta^4 = zeta^3 - zeta^2 + zeta - 1
+// and zeta^5 = -1, which also makes the representation unique.
+// So equality is exact, hashing works, and nothing drifts no matter how far out we go.
+// Doubles only come into it when somebody asks for getX() and getY().
+public final class CyclotomicPoint {
+
+  public static final CyclotomicPoint ORIGIN = new CyclotomicPoint(0, 0, 0, 0);
+  public static final CyclotomicPoint ONE = new CyclotomicPoint(1, 0, 0, 0);
+  // The golden ratio, zeta + zeta^-1 = 1 + zeta^2 - zeta^3.
+  public static final CyclotomicPoint PHI = new CyclotomicPoint(1, 0, 1, -1);
+  // 1/phi = phi - 1, the length of a short edge.
+  public static final CyclotomicPoint INVERSE_PHI = new CyclotomicPoint(0, 0, 1, -1);
+  // 1/phi^2 = 1 - 1/phi.
+  public static final CyclotomicPoint INVERSE_PHI_SQUARED = new CyclotomicPoint(1, 0, -1, 1);
+
+  private static final double[] COSINES = new double[4];
+  private static final double[] SINES = new double[4];
+  private static final CyclotomicPoint[] UNITS = new CyclotomicPoint[Vertex.WEDGE_COUNT];
+
+  static {
+    for(int k = 0; k < 4; k++) {
+      COSINES[k] = Math.cos(Math.PI * 0.2 * k);
+      SINES[k] = Math.sin(Math.PI * 0.2 * k);
+    }
+    UNITS[0] = ONE;
+    for(int k = 1; k < Vertex.WEDGE_COUNT; k++) {
+      UNITS[k] = UNITS[k - 1].rotateCounterclockwise();
+    }
+  }
+
+  // Coefficients of zeta^0 through zeta^3.
+  private final int c0;
+  private final int c1;
+  private final int c2;
+  private final int c3;
+
+  public CyclotomicPoint(int c0, int c1, int c2, int c3) {
+    this.c0 = c0;
+    this.c1 = c1;
+    this.c2 = c2;
+    this.c3 = c3;
+  }
+
+  // The unit vector pointing 36 * k degrees counterclockwise of the x axis.
+  public static CyclotomicPoint unit(int k) {
+    return UNITS[Vertex.normalizeWedgeNumber(k)];
+  }
+
+  public CyclotomicPoint plus(CyclotomicPoint p) {
+    return new CyclotomicPoint(c0 + p.c0, c1 + p.c1, c2 + p.c2, c3 + p.c3);
+  }
+
+  public CyclotomicPoint minus(CyclotomicPoint p) {
+    return new CyclotomicPoint(c0 - p.c0, c1 - p.c1, c2 - p.c2, c3 - p.c3);
+  }
+
+  public CyclotomicPoint times(int s) {
+    return new CyclotomicPoint(c0 * s, c1 * s, c2 * s, c3 * s);
+  }
+
+  // Complex multiplication, which is how we scale by phi and friends without leaving the integers.
+  public CyclotomicPoint times(CyclotomicPoint p) {
+    CyclotomicPoint result = p.times(c0);
+    CyclotomicPoint rotated = p;
+    for(int c : new int[]{c1, c2, c3}) {
+      rotated = rotated.rotateCounterclockwise();
+      result = result.plus(rotated.times(c));
+    }
+    return result;
+  }
+
+  // Multiply by zeta, folding the zeta^4 term back down into the other four.
+  public CyclotomicPoint rotateCounterclockwise() {
+    return new CyclotomicPoint(-c3, c0 + c3, c1 - c3, c2 + c3);
+  }
+
+  public double getX() {
+    return getX(c0, c1, c2, c3);
+  }
+
+  public double getY() {
+    return getY(c0, c1, c2, c3);
+  }
+
+  // For anybody keeping coefficients in plain int arrays instead of in points.
+  static double getX(int c0, int c1, int c2, int c3) {
+    return c0 * COSINES[0] + c1 * COSINES[1] + c2 * COSINES[2] + c3 * COSINES[3];
+  }
+
+  static double getY(int c0, int c1, int c2, int c3) {
+    return c0 * SINES[0] + c1 * SINES[1] + c2 * SINES[2] + c3 * SINES[3];
+  }
+
+  void copyCoefficientsInto(int[] coefficients, int offset) {
+    coefficients[offset] = c0;
+    coefficients[offset + 1] = c1;
+    coefficients[offset + 2] = c2;
+    coefficients[offset + 3] = c3;
+  }
+
+  public Point toPoint() {
+    return new Point(getX(), getY());
+  }
+
+  public boolean isGreaterThanOrEqual(Point p) {
+    return getX() >= p.x && getY() >= p.y;
+  }
+
+  public boolean isLessThanOrEqual(Point p) {
+    return getX() <= p.x && getY() <= p.y;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(this == o) {
+      return true;
+    }
+    if(!(o instanceof CyclotomicPoint)) {
+      return false;
+    }
+    CyclotomicPoint p = (CyclotomicPoint)o;
+    return c0 == p.c0 && c1 == p.c1 && c2 == p.c2 && c3 == p.c3;
+  }
+
+  @Override
+  public int hashCode() {
+    return ((c0 * 31 + c1) * 31 + c2) * 31 + c3;
+  }
+
+  public String toString() {
+    return "CyclotomicPoint{" + c0 + ", " + c1 + ", " + c2 + ", " + c3 + " = " + getX() + ", " + getY() + "}";
+  }
+
+}
@@ -25,32 +25,23 @@ public class Dart extends Shape {
     o.vWedgeLocations.put(Vwedge.F5, 8);
     o.vWedgeLocations.put(Vwedge.G0, 4);
 
-    Point[] baseVertices = new Point[4];
-    baseVertices[V.K.shapeBasedNumber] = new Point(0.0, 0.0);
-    baseVertices[V.N.shapeBasedNumber] = new Point(1.0, 0.0);
-    baseVertices[V.L.shapeBasedNumber] = new Point(Math.cos(Math.PI*0.4), Math.sin(Math.PI*0.4));
-    baseVertices[V.M.shapeBasedNumber] = new Point(0.5, Math.tan(Math.PI*0.2)/2.0);
+    CyclotomicPoint[] baseVertices = new CyclotomicPoint[4];
+    baseVertices[V.K.shapeBasedNumber] = CyclotomicPoint.ORIGIN;
+    baseVertices[V.N.shapeBasedNumber] = CyclotomicPoint.unit(0);
+    baseVertices[V.L.shapeBasedNumber] = CyclotomicPoint.unit(2);
+    baseVertices[V.M.shapeBasedNumber] = CyclotomicPoint.unit(1).times(CyclotomicPoint.INVERSE_PHI);
     o.setRelativePoints(baseVertices);
 
     orientations.add(o);
     // The first one is already in the list.
+    CyclotomicPoint[] rotatedVertices = baseVertices;
     for(int i = 1; i < Vertex.WEDGE_COUNT; i++) {
       o = o.rotateOrientationCounterclockwise();
-      // Why not just let o deal with the rotation?
-      // Because we want the most precision we can get,
-      // and stacking rotations causes error creep.
-      double angle = Math.PI*0.2 * i;
-      double cosAngle = Math.cos(angle);
-      double sinAngle = Math.sin(angle);
-      Point[] rotatedVertices = new Point[4];
-
-
-      // 0,0 is not going to rotate anywhere.
-      rotatedVertices[0] = Point.ORIGIN;
-      for(int j = 1; j < 4; j++) {
-        Point temp = baseVertices[j];
-        rotatedVertices[j] = new Point(temp.x * cosAngle - temp.y * sinAngle,
-                temp.x * sinAngle + temp.y * cosAngle);
+      // Rotating exact points is exact, so there's no error creep from stacking rotations.
+      CyclotomicPoint[] previousVertices = rotatedVertices;
+      rotatedVertices = new CyclotomicPoint[4];
+      for(int j = 0; j < 4; j++) {
+        rotatedVertices[j] = previousVertices[j].rotateCounterclockwise();
       }
       o.setRelativePoints(rotatedVertices);
       orientations.add(o);
@@ -0,0 +1,83 @@
+package net.origamimarie.penrose.generation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+// Builds a patch by starting with one enormous sun and deflating it down to unit-sized tiles.
+// Unlike TilingGenerator, nothing here is random and nothing ever gets rolled back,
+// because every deflation of a legal patch is another legal patch.
+@Slf4j
+public class DeflationGenerator {
+
+  // Null if nothing landed in the rectangle.
+  private Vertex liveVertex;
+
+  public DeflationGenerator(Point low, Point high) {
+    // Find out how big the starting sun has to be to cover the whole rectangle.
+    // The sun is a decagon, so its inscribed circle is a bit smaller than its outer points.
+    double maxDistance = 0;
+    for(Point corner : new Point[]{low, high, new Point(low.x, high.y), new Point(high.x, low.y)}) {
+      maxDistance = Math.max(maxDistance, Math.hypot(corner.x, corner.y));
+    }
+    double neededRadius = maxDistance / Math.cos(Math.PI * 0.1) + 1.0;
+    int deflations = Math.max(1, (int)Math.ceil(Math.log(neededRadius) / Math.log(CyclotomicPoint.PHI.getX())));
+    CyclotomicPoint radius = CyclotomicPoint.ONE;
+    for(int i = 0; i < deflations; i++) {
+      radius = radius.times(CyclotomicPoint.PHI);
+    }
+
+    List<HalfTile> halves = makeSun(radius);
+    for(int i = 0; i < deflations; i++) {
+      List<HalfTile> deflated = new ArrayList<>(halves.size() * 3);
+      List<HalfTile> children = new ArrayList<>(3);
+      for(HalfTile half : halves) {
+        children.clear();
+        half.deflateInto(children);
+        // Nothing that can't reach the rectangle is worth deflating any further.
+        for(HalfTile child : children) {
+          if(child.touches(low, high)) {
+            deflated.add(child);
+          }
+        }
+      }
+      halves = deflated;
+    }
+    log.debug("{} deflations left {} half-tiles", deflations, halves.size());
+
+    List<Tile> tiles = new ArrayList<>(halves.size());
+    for(HalfTile half : halves) {
+      tiles.add(half.toTile());
+    }
+    TileGraphBuilder builder = new TileGraphBuilder();
+    for(Tile tile : TileGraphBuilder.uniqueTiles(tiles)) {
+      builder.add(tile);
+    }
+    liveVertex = builder.getLiveVertex();
+  }
+
+  // Five kites with their tips together.
+  private static List<HalfTile> makeSun(CyclotomicPoint radius) {
+    List<HalfTile> halves = new ArrayList<>(10);
+    for(int i = 0; i < Vertex.WEDGE_COUNT; i += 2) {
+      CyclotomicPoint wing = CyclotomicPoint.unit(i).times(radius);
+      CyclotomicPoint axis = CyclotomicPoint.unit(i + 1).times(radius);
+      CyclotomicPoint otherWing = CyclotomicPoint.unit(i + 2).times(radius);
+      halves.add(new HalfTile(true, CyclotomicPoint.ORIGIN, wing, axis));
+      halves.add(new HalfTile(true, CyclotomicPoint.ORIGIN, otherWing, axis));
+    }
+    return halves;
+  }
+
+  public List<CyclotomicPoint[]> getAllPointLists() {
+    return liveVertex == null ? Collections.<CyclotomicPoint[]>emptyList() : liveVertex.getAllShapePoints();
+  }
+
+  public Set<Vertex> getAllVertices() {
+    return liveVertex == null ? Collections.<Vertex>emptySet() : liveVertex.getAllLiveVertices();
+  }
+
+}
@@ -0,0 +1,92 @@
+package net.origamimarie.penrose.generation;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// All of the live vertices that still have open wedges, kept up to date as shapes come and go,
+// so nobody has to go rescanning every vertex to find out where there's work left to do.
+// The ones inside the region get their own set too, since that's what the generator actually wants.
+// Both sets remember insertion order, so next() hands out the oldest unfinished vertex in the region.
+public class Frontier {
+
+  private final Set<Vertex> nonFullVertices;
+  private final Set<Vertex> regionVertices;
+  // No region means everywhere counts.
+  private Point low = null;
+  private Point high = null;
+
+  public Frontier() {
+    nonFullVertices = new LinkedHashSet<>();
+    regionVertices = new LinkedHashSet<>();
+  }
+
+  public void setRegion(Point low, Point high) {
+    this.low = low;
+    this.high = high;
+    regionVertices.clear();
+    for(Vertex vertex : nonFullVertices) {
+      if(isInRegion(vertex)) {
+        regionVertices.add(vertex);
+      }
+    }
+  }
+
+  // Something about this vertex changed, so it may have joined or left the frontier.
+  // Callers already know whether it's live, which saves us a lookup.
+  void update(Vertex vertex, boolean live) {
+    if(live && !vertex.isDead() && !vertex.isFull()) {
+      if(nonFullVertices.add(vertex) && isInRegion(vertex)) {
+        regionVertices.add(vertex);
+      }
+    } else {
+      remove(vertex);
+    }
+  }
+
+  void remove(Vertex vertex) {
+    if(nonFullVertices.remove(vertex)) {
+      regionVertices.remove(vertex);
+    }
+  }
+
+  // Everything on another frontier, whose vertices have all moved over here.
+  void addAll(Frontier other) {
+    for(Vertex vertex : other.nonFullVertices) {
+      if(nonFullVertices.add(vertex) && isInRegion(vertex)) {
+        regionVertices.add(vertex);
+      }
+    }
+  }
+
+  // The oldest vertex in the region that still needs filling, or null if the region is done.
+  public Vertex next() {
+    return next(FrontierStrategy.OLDEST_FIRST);
+  }
+
+  // Same, but the strategy decides which one.
+  public Vertex next(FrontierStrategy strategy) {
+    return strategy.choose(regionVertices, low, high);
+  }
+
+  public boolean isRegionFinished() {
+    return regionVertices.isEmpty();
+  }
+
+  public int regionSize() {
+    return regionVertices.size();
+  }
+
+  public Set<Vertex> getNonFullVertices() {
+    return Collections.unmodifiableSet(nonFullVertices);
+  }
+
+  private boolean isInRegion(Vertex vertex) {
+    CyclotomicPoint location = vertex.getLocation();
+    if(location == null) {
+      return false;
+    }
+    return low == null || (location.isGreaterThanOrEqual(low) && location.isLessThanOrEqual(high));
+  }
+
+}
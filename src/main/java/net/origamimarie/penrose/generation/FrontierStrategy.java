@@ -0,0 +1,135 @@
+package net.origamimarie.penrose.generation;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// How the generator picks which unfinished vertex in the region to grow from next,
+// and then which open slot of it to fill from which configuration.
+// Every vertex choice gets made from the frontier's region set, which is only the unfinished edge of the tiling.
+// OLDEST_FIRST just takes the first one, but the others look at every one of them on every step.
+// The edge of a growing patch of n shapes has something like sqrt(n) vertices on it,
+// so those cost more like n^1.5 over a whole region than n, which starts to show on big regions.
+// Tiling keeps count of the rollbacks, so strategies can be compared on how often they paint themselves into a corner.
+public enum FrontierStrategy {
+
+  // Whatever's been waiting the longest.  This is what the generator always did.
+  OLDEST_FIRST {
+    @Override
+    Vertex choose(Set<Vertex> regionVertices, Point low, Point high) {
+      Iterator<Vertex> iterator = regionVertices.iterator();
+      return iterator.hasNext() ? iterator.next() : null;
+    }
+  },
+
+  // The vertex with the fewest configurations left, then the fewest open wedges.
+  // Those are the ones most likely to go wrong, so it's best to deal with them while there's still room.
+  // Same idea for the slot: the open one with the fewest different vwedges that could still go in it.
+  MOST_CONSTRAINED {
+    @Override
+    Candidate chooseCandidate(Vertex vertex, SplittableRandom random, CandidateWeights weights) {
+      long possibleConfigurations = vertex.getPossibleConfigurations();
+      int bestSlot = -1;
+      int bestOptions = Integer.MAX_VALUE;
+      for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
+        if(vertex.getWedge(i) == null) {
+          long options = 0;
+          for(long remaining = possibleConfigurations; remaining != 0; remaining &= remaining - 1) {
+            options |= 1L << Vertex.getAllConfigurations().get(Long.numberOfTrailingZeros(remaining))[i].ordinal();
+          }
+          if(Long.bitCount(options) < bestOptions) {
+            bestSlot = i;
+            bestOptions = Long.bitCount(options);
+          }
+        }
+      }
+      return new Candidate(bestSlot, weights.choose(possibleConfigurations, vertex.getOpenWedgeCount(), random));
+    }
+
+
+    @Override
+    Vertex choose(Set<Vertex> regionVertices, Point low, Point high) {
+      Vertex best = null;
+      int bestConfigurations = Integer.MAX_VALUE;
+      int bestOpenWedges = Integer.MAX_VALUE;
+      for(Vertex vertex : regionVertices) {
+        int configurations = vertex.getPossibleConfigurationCount();
+        int openWedges = vertex.getOpenWedgeCount();
+        if(configurations < bestConfigurations || (configurations == bestConfigurations && openWedges < bestOpenWedges)) {
+          best = vertex;
+          bestConfigurations = configurations;
+          bestOpenWedges = openWedges;
+        }
+      }
+      return best;
+    }
+  },
+
+  // Grow outwards from the middle of the region (or the origin, if there's no region).
+  NEAREST_CENTRE {
+    @Override
+    Vertex choose(Set<Vertex> regionVertices, Point low, Point high) {
+      double centreX = low == null ? 0.0 : (low.x + high.x) / 2;
+      double centreY = low == null ? 0.0 : (low.y + high.y) / 2;
+      Vertex best = null;
+      double bestDistance = Double.MAX_VALUE;
+      for(Vertex vertex : regionVertices) {
+        double dx = vertex.getLocation().getX() - centreX;
+        double dy = vertex.getLocation().getY() - centreY;
+        double distance = dx * dx + dy * dy;
+        if(distance < bestDistance) {
+          best = vertex;
+          bestDistance = distance;
+        }
+      }
+      return best;
+    }
+  },
+
+  // Row by row, bottom to top, left to right within a row.
+  // Rows are one unit (one tile edge) tall, since vertices never line up exactly.
+  SCANLINE {
+    @Override
+    Vertex choose(Set<Vertex> regionVertices, Point low, Point high) {
+      Vertex best = null;
+      double bestRow = Double.MAX_VALUE;
+      double bestX = Double.MAX_VALUE;
+      for(Vertex vertex : regionVertices) {
+        double row = Math.floor(vertex.getLocation().getY());
+        double x = vertex.getLocation().getX();
+        if(row < bestRow || (row == bestRow && x < bestX)) {
+          best = vertex;
+          bestRow = row;
+          bestX = x;
+        }
+      }
+      return best;
+    }
+  };
+
+  // Null if there's nothing left to choose from.
+  abstract Vertex choose(Set<Vertex> regionVertices, Point low, Point high);
+
+  // What to try on a vertex that isn't full and still has a configuration left.
+  // Unless a strategy says otherwise, that's the first open slot from a random starting point,
+  // filled from a random configuration (going easy on the ones that keep getting rolled back).
+  Candidate chooseCandidate(Vertex vertex, SplittableRandom random, CandidateWeights weights) {
+    int slot = random.nextInt(Vertex.WEDGE_COUNT);
+    while(vertex.getWedge(slot) != null) {
+      slot = Vertex.normalizeWedgeNumber(slot + 1);
+    }
+    return new Candidate(slot, weights.choose(vertex.getPossibleConfigurations(), vertex.getOpenWedgeCount(), random));
+  }
+
+  // An open slot, and the configuration (by bit number) whose vwedge goes in it.
+  static class Candidate {
+    final int slot;
+    final int configuration;
+
+    Candidate(int slot, int configuration) {
+      this.slot = slot;
+      this.configuration = configuration;
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+package net.origamimarie.penrose.generation;
+
+import java.util.List;
+
+// Half of a kite or half of a dart (a Robinson triangle), split down the axis of symmetry.
+// Kite: tip is K, wing is L or N, axis is M.
+// Dart: tip is D, wing is E or G, axis is F.
+class HalfTile {
+
+  final boolean kite;
+  final CyclotomicPoint tip;
+  final CyclotomicPoint wing;
+  final CyclotomicPoint axis;
+
+  HalfTile(boolean kite, CyclotomicPoint tip, CyclotomicPoint wing, CyclotomicPoint axis) {
+    this.kite = kite;
+    this.tip = tip;
+    this.wing = wing;
+    this.axis = axis;
+  }
+
+  void deflateInto(List<HalfTile> halves) {
+    if(kite) {
+      // Half-kite becomes half of a dart hanging off the long edge,
+      // plus a whole kite with its tip out on the wing.
+      CyclotomicPoint dartWing = between(tip, axis, CyclotomicPoint.INVERSE_PHI);
+      CyclotomicPoint dartAxis = between(tip, wing, CyclotomicPoint.INVERSE_PHI_SQUARED);
+      halves.add(new HalfTile(false, tip, dartWing, dartAxis));
+      halves.add(new HalfTile(true, wing, dartAxis, dartWing));
+      halves.add(new HalfTile(true, wing, axis, dartWing));
+    } else {
+      // Half-dart becomes half of a kite sharing the dart's axis,
+      // plus half of a dart hanging off the long edge.
+      CyclotomicPoint split = between(tip, wing, CyclotomicPoint.INVERSE_PHI);
+      halves.add(new HalfTile(true, tip, split, axis));
+      halves.add(new HalfTile(false, wing, axis, split));
+    }
+  }
+
+  boolean touches(Point low, Point high) {
+    double minX = Math.min(tip.getX(), Math.min(wing.getX(), axis.getX()));
+    double maxX = Math.max(tip.getX(), Math.max(wing.getX(), axis.getX()));
+    double minY = Math.min(tip.getY(), Math.min(wing.getY(), axis.getY()));
+    double maxY = Math.max(tip.getY(), Math.max(wing.getY(), axis.getY()));
+    return maxX >= low.x && minX <= high.x && maxY >= low.y && minY <= high.y;
+  }
+
+  // The whole tile this is half of.
+  // The tip-to-axis direction is 36 degrees counterclockwise of the orientation's zero wedge,
+  // and it's a long edge on kites and a short edge on darts.
+  Tile toTile() {
+    CyclotomicPoint direction = axis.minus(tip);
+    for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
+      CyclotomicPoint unit = CyclotomicPoint.unit(i + 1);
+      if(direction.equals(kite ? unit : unit.times(CyclotomicPoint.INVERSE_PHI))) {
+        return new Tile(kite, tip, i);
+      }
+    }
+    throw new IllegalStateException("Half tile is not unit sized: " + this);
+  }
+
+  private static CyclotomicPoint between(CyclotomicPoint from, CyclotomicPoint to, CyclotomicPoint fraction) {
+    return from.plus(to.minus(from).times(fraction));
+  }
+
+  @Override
+  public String toString() {
+    return (kite ? "HalfKite{" : "HalfDart{") + tip + ", " + wing + ", " + axis + "}";
+  }
+
+}
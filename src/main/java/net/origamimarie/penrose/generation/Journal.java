@@ -0,0 +1,70 @@
+package net.origamimarie.penrose.generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A trail of undo steps for everything that changes while a shape is being tried out.
+// Rolling back just runs the steps for that attempt backwards,
+// so a bad guess costs about as much to undo as it cost to make,
+// no matter how big the rest of the tiling is.
+class Journal {
+
+  private final List<Runnable> undoSteps;
+  // Nothing gets written down unless somebody has started an attempt.
+  private int depth;
+  // The mark each attempt started at, innermost last, so finishing the wrong one gets caught.
+  private int[] marks;
+
+  Journal() {
+    undoSteps = new ArrayList<>();
+    depth = 0;
+    marks = new int[8];
+  }
+
+  // Start an attempt.  Hang on to the mark, it's what commit and rollback want back.
+  int begin() {
+    if(depth == marks.length) {
+      marks = Arrays.copyOf(marks, depth * 2);
+    }
+    int mark = undoSteps.size();
+    marks[depth++] = mark;
+    return mark;
+  }
+
+  boolean isRecording() {
+    return depth > 0;
+  }
+
+  void record(Runnable undoStep) {
+    if(depth > 0) {
+      undoSteps.add(undoStep);
+    }
+  }
+
+  // The attempt worked out.  Once the outermost attempt is done, there's nothing left worth undoing.
+  void commit(int mark) {
+    finish(mark);
+    if(depth == 0) {
+      undoSteps.clear();
+    }
+  }
+
+  // Undo everything since the mark, newest first.
+  void rollback(int mark) {
+    finish(mark);
+    for(int i = undoSteps.size() - 1; i >= mark; i--) {
+      undoSteps.remove(i).run();
+    }
+  }
+
+  // Attempts have to finish innermost first.
+  private void finish(int mark) {
+    if(depth == 0 || marks[depth - 1] != mark) {
+      throw new IllegalStateException("Journal mark " + mark + " isn't the innermost attempt"
+              + (depth == 0 ? " (there isn't one)" : " (that's " + marks[depth - 1] + ")"));
+    }
+    depth--;
+  }
+
+}
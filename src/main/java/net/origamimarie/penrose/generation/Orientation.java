@@ -5,11 +5,11 @@ import java.util.Map;
 
 public class Orientation {
   public final Map<Vwedge, Integer> vWedgeLocations;
-  public final Point[] relativePoints;
+  public final CyclotomicPoint[] relativePoints;
 
   public Orientation() {
     vWedgeLocations = new HashMap<>();
-    relativePoints = new Point[4];
+    relativePoints = new CyclotomicPoint[4];
   }
 
   public Orientation rotateOrientationCounterclockwise() {
@@ -20,7 +20,7 @@ public class Orientation {
     return o;
   }
 
-  public void setRelativePoints(Point[] relativePoints) {
+  public void setRelativePoints(CyclotomicPoint[] relativePoints) {
     System.arraycopy(relativePoints, 0, this.relativePoints, 0, 4);
   }
 
@@ -0,0 +1,292 @@
+package net.origamimarie.penrose.generation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// De Bruijn's pentagrid: five families of evenly spaced parallel lines,
+// each family turned 72 degrees from the last and nudged off center by its own offset.
+// Every place two lines cross is one rhomb of a rhomb tiling,
+// and every rhomb splits into Robinson triangles that deflate straight into kites and darts.
+// The nice part is that any crossing can be worked out on its own,
+// so we can jump straight to any window without growing everything in between.
+@Slf4j
+public class PentagridGenerator {
+
+  private static final int FAMILIES = 5;
+  private static final Point[] UNIT_VECTORS = new Point[FAMILIES];
+  // The same unit vectors, exactly, for building the tiles.
+  private static final CyclotomicPoint[] EXACT_UNIT_VECTORS = new CyclotomicPoint[FAMILIES];
+  // How far a tile can wander from where its crossing maps to, in grid space.
+  // Generous, because anything extra just gets filtered out again.
+  private static final double GRID_MARGIN = 2.0;
+  // No point splitting the work into strips much narrower than this, the seams would be most of it.
+  private static final double MIN_STRIP_WIDTH = 16.0;
+  // No part of a tile is more than one unit from its tip, plus a little for rounding.
+  private static final double TILE_REACH = 1.5;
+
+  static {
+    for(int j = 0; j < FAMILIES; j++) {
+      double angle = Math.PI * 0.4 * j;
+      UNIT_VECTORS[j] = new Point(Math.cos(angle), Math.sin(angle));
+      EXACT_UNIT_VECTORS[j] = CyclotomicPoint.unit(2 * j);
+    }
+  }
+
+  private final double[] offsets;
+  // Where the grid's origin ends up in tiling space.
+  private final Point offsetCenter;
+
+  public PentagridGenerator(long seed) {
+    this(randomOffsets(new Random(seed)));
+  }
+
+  public PentagridGenerator(double[] offsets) {
+    if(offsets.length != FAMILIES) {
+      throw new IllegalArgumentException("A pentagrid needs exactly " + FAMILIES + " offsets");
+    }
+    double sum = 0;
+    for(double offset : offsets) {
+      sum += offset;
+    }
+    // The offsets have to add up to zero, or the result isn't a Penrose tiling.
+    if(Math.abs(sum) > 0.000001) {
+      throw new IllegalArgumentException("Pentagrid offsets must add up to zero, not " + sum);
+    }
+    this.offsets = offsets.clone();
+    Point center = Point.ORIGIN;
+    for(int j = 0; j < FAMILIES; j++) {
+      center = center.plus(UNIT_VECTORS[j].times(offsets[j]));
+    }
+    offsetCenter = center;
+  }
+
+  private static double[] randomOffsets(Random random) {
+    double[] offsets = new double[FAMILIES];
+    double sum = 0;
+    for(int j = 0; j < FAMILIES - 1; j++) {
+      offsets[j] = random.nextDouble();
+      sum += offsets[j];
+    }
+    offsets[FAMILIES - 1] = -sum;
+    return offsets;
+  }
+
+  public List<Tile> getTiles(Point low, Point high) {
+    return getTiles(low, high, false);
+  }
+
+  // Same tiles as getTiles, but the grid lines get farmed out to all of the cores.
+  public List<Tile> getTilesInParallel(Point low, Point high) {
+    return getTiles(low, high, true);
+  }
+
+  // Whichever tile covers this point (or one of them, if the point is right on an edge).
+  public Tile getTileContaining(Point point) {
+    Point low = point.minus(new Point(1, 1));
+    Point high = point.plus(new Point(1, 1));
+    for(Tile tile : getTiles(low, high)) {
+      if(tile.contains(point)) {
+        return tile;
+      }
+    }
+    // Every point is covered by something, so this really shouldn't happen.
+    throw new IllegalStateException("No tile found covering " + point);
+  }
+
+  // All of the tiles touching the rectangle, stamped into a Shape/Vertex graph.
+  // In parallel, the rectangle gets split into strips, one graph per core, sewn together at the end.
+  public Set<Vertex> generateVertices(Point low, Point high, boolean parallel) {
+    if(parallel) {
+      int strips = (int)Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), (high.x - low.x) / MIN_STRIP_WIDTH));
+      return generateVerticesInStrips(low, high, strips);
+    }
+    TileGraphBuilder builder = new TileGraphBuilder();
+    for(Tile tile : getTiles(low, high, parallel)) {
+      builder.add(tile);
+    }
+    // No live vertex means nothing landed in the rectangle.
+    Vertex liveVertex = builder.getLiveVertex();
+    return liveVertex == null ? Collections.<Vertex>emptySet() : liveVertex.getAllLiveVertices();
+  }
+
+  // Every tile belongs to the strip its tip is in (the end strips take everything past the ends too),
+  // so no tile gets built twice, and sewing the strips together only means merging the vertices along the seams.
+  // The pentagrid is the same everywhere no matter who's asking, so the strips can't disagree.
+  // Once they're sewn, the first strip's Tiling takes over everybody else's, so it's one graph again.
+  Set<Vertex> generateVerticesInStrips(Point low, Point high, int strips) {
+    // A strip narrower than two tile reaches could have vertices on both of its seams,
+    // or tiles that reach past the next strip over, and then the seams don't sew up right.
+    int stripCount = (int)Math.max(1, Math.min(strips, (high.x - low.x) / (2 * TILE_REACH)));
+    double stripWidth = (high.x - low.x) / stripCount;
+    List<Strip> stripList = IntStream.range(0, stripCount).parallel().mapToObj(strip -> {
+      Point stripLow = new Point(low.x + strip * stripWidth - TILE_REACH, low.y);
+      Point stripHigh = new Point(low.x + (strip + 1) * stripWidth + TILE_REACH, high.y);
+      TileGraphBuilder builder = new TileGraphBuilder();
+      for(Tile tile : getTiles(stripLow, stripHigh, false)) {
+        int owner = (int)Math.floor((tile.tip.getX() - low.x) / stripWidth);
+        if(Math.max(0, Math.min(stripCount - 1, owner)) == strip && tile.touches(low, high)) {
+          builder.add(tile);
+        }
+      }
+      // Only the vertices this close to the seam on the left could be shared with the strip over there.
+      double seamX = low.x + strip * stripWidth;
+      List<Vertex> seamVertices = new ArrayList<>();
+      if(strip > 0) {
+        for(Vertex vertex : builder.getTiling().getLiveVertices()) {
+          if(Math.abs(vertex.getLocation().getX() - seamX) <= TILE_REACH) {
+            seamVertices.add(vertex);
+          }
+        }
+      }
+      return new Strip(builder.getTiling(), seamVertices);
+    }).collect(Collectors.toList());
+
+    // Sewing a seam changes the strips on both sides of it, so every other seam goes at once, then the rest.
+    for(int parity = 1; parity <= 2; parity++) {
+      IntStream.iterate(parity, seam -> seam + 2).limit(Math.max(0, (stripCount - parity + 1) / 2)).parallel().forEach(seam -> {
+        Tiling left = stripList.get(seam - 1).tiling;
+        for(Vertex vertex : stripList.get(seam).seamVertices) {
+          Conflict conflict = vertex.sewInto(left);
+          if(conflict != null) {
+            throw new IllegalStateException("Strips don't line up: " + conflict);
+          }
+        }
+      });
+    }
+
+    Tiling tiling = stripList.get(0).tiling;
+    for(int i = 1; i < stripCount; i++) {
+      tiling.absorb(stripList.get(i).tiling);
+    }
+    log.debug("Sewed {} strips into {} vertices", stripCount, tiling.getLiveVertices().size());
+    return Collections.unmodifiableSet(tiling.getLiveVertices());
+  }
+
+  private static class Strip {
+    private final Tiling tiling;
+    private final List<Vertex> seamVertices;
+
+    private Strip(Tiling tiling, List<Vertex> seamVertices) {
+      this.tiling = tiling;
+      this.seamVertices = seamVertices;
+    }
+  }
+
+  // The same tiles, packed into a TileStore instead of a Shape/Vertex graph.
+  public TileStore generateTileStore(Point low, Point high, boolean parallel) {
+    return TileStore.fromTiles(getTiles(low, high, parallel));
+  }
+
+  private List<Tile> getTiles(Point low, Point high, boolean parallel) {
+    // The tiling is roughly the grid scaled up by 5/2, plus the offsets,
+    // so shrink the window back down into grid space.
+    Point gridLow = low.minus(offsetCenter).times(0.4).minus(new Point(GRID_MARGIN, GRID_MARGIN));
+    Point gridHigh = high.minus(offsetCenter).times(0.4).plus(new Point(GRID_MARGIN, GRID_MARGIN));
+    int[] lowestLine = new int[FAMILIES];
+    int[] highestLine = new int[FAMILIES];
+    for(int j = 0; j < FAMILIES; j++) {
+      double min = Double.MAX_VALUE;
+      double max = -Double.MAX_VALUE;
+      for(Point corner : new Point[]{gridLow, gridHigh, new Point(gridLow.x, gridHigh.y), new Point(gridHigh.x, gridLow.y)}) {
+        double value = dot(corner, UNIT_VECTORS[j]) + offsets[j];
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      lowestLine[j] = (int)Math.floor(min);
+      highestLine[j] = (int)Math.ceil(max);
+    }
+
+    // One unit of work per line: that line crossed with every line of every later family.
+    List<int[]> lines = new ArrayList<>();
+    for(int r = 0; r < FAMILIES; r++) {
+      for(int s = r + 1; s < FAMILIES; s++) {
+        for(int kr = lowestLine[r]; kr <= highestLine[r]; kr++) {
+          lines.add(new int[]{r, s, kr});
+        }
+      }
+    }
+    IntStream lineNumbers = IntStream.range(0, lines.size());
+    if(parallel) {
+      lineNumbers = lineNumbers.parallel();
+    }
+    List<Tile> tiles = lineNumbers.mapToObj(i -> {
+      int[] line = lines.get(i);
+      List<HalfTile> halves = new ArrayList<>();
+      for(int ks = lowestLine[line[1]]; ks <= highestLine[line[1]]; ks++) {
+        addRhombHalves(halves, line[0], line[1], line[2], ks, gridLow, gridHigh);
+      }
+      List<Tile> lineTiles = new ArrayList<>(halves.size());
+      for(HalfTile half : halves) {
+        Tile tile = half.toTile();
+        if(tile.touches(low, high)) {
+          lineTiles.add(tile);
+        }
+      }
+      return lineTiles;
+    }).flatMap(Collection::stream).collect(Collectors.toList());
+
+    Collection<Tile> uniqueTiles = TileGraphBuilder.uniqueTiles(tiles);
+    log.debug("{} crossing lines made {} unique tiles", lines.size(), uniqueTiles.size());
+    return new ArrayList<>(uniqueTiles);
+  }
+
+  // The rhomb where line kr of family r crosses line ks of family s,
+  // as unit-sized Robinson triangles.
+  private void addRhombHalves(List<HalfTile> halves, int r, int s, int kr, int ks,
+                              Point gridLow, Point gridHigh) {
+    Point crossing = findCrossing(r, s, kr - offsets[r], ks - offsets[s]);
+    if(!crossing.isGreaterThanOrEqual(gridLow) || !crossing.isLessThanOrEqual(gridHigh)) {
+      return;
+    }
+    // Every other family says which strip the crossing is in.
+    // The strip numbers are the rhomb's coordinates along each unit vector.
+    CyclotomicPoint bottom = EXACT_UNIT_VECTORS[r].times(kr).plus(EXACT_UNIT_VECTORS[s].times(ks));
+    int index = kr + ks;
+    for(int j = 0; j < FAMILIES; j++) {
+      if(j != r && j != s) {
+        int strip = (int)Math.ceil(dot(crossing, UNIT_VECTORS[j]) + offsets[j]);
+        bottom = bottom.plus(EXACT_UNIT_VECTORS[j].times(strip));
+        index += strip;
+      }
+    }
+    CyclotomicPoint sideR = bottom.plus(EXACT_UNIT_VECTORS[r]);
+    CyclotomicPoint sideS = bottom.plus(EXACT_UNIT_VECTORS[s]);
+    CyclotomicPoint top = sideR.plus(EXACT_UNIT_VECTORS[s]);
+    // The index (sum of all the strip numbers) is always 1 or 2 for the bottom corner,
+    // and it's what the matching rules boil down to.
+    // Index 1 rhombs point their darts' tips and kites' axes at the top corner, index 2 at the bottom.
+    CyclotomicPoint pointyEnd = index == 1 ? top : bottom;
+    CyclotomicPoint bluntEnd = index == 1 ? bottom : top;
+
+    if(s - r == 1 || s - r == 4) {
+      // Fat rhomb: two half-darts, one size up, joined along their long edges.
+      new HalfTile(false, pointyEnd, bluntEnd, sideR).deflateInto(halves);
+      new HalfTile(false, pointyEnd, bluntEnd, sideS).deflateInto(halves);
+    } else {
+      // Skinny rhomb: two half-kites joined along their short edges.
+      halves.add(new HalfTile(true, sideR, bluntEnd, pointyEnd));
+      halves.add(new HalfTile(true, sideS, bluntEnd, pointyEnd));
+    }
+  }
+
+  // Where the line x.e_r = a crosses the line x.e_s = b.
+  private static Point findCrossing(int r, int s, double a, double b) {
+    Point er = UNIT_VECTORS[r];
+    Point es = UNIT_VECTORS[s];
+    double determinant = er.x * es.y - er.y * es.x;
+    return new Point((a * es.y - b * er.y) / determinant, (b * er.x - a * es.x) / determinant);
+  }
+
+  private static double dot(Point a, Point b) {
+    return a.x * b.x + a.y * b.y;
+  }
+
+}
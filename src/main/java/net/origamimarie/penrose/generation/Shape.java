@@ -55,25 +55,20 @@ public abstract class Shape {
     return vertices[vwedge.v.shapeBasedNumber];
   }
 
-  public void replaceVertex(Vertex original, Vertex replacement) {
-    for(int i = 0; i < vertices.length; i++) {
-      if(vertices[i] == original) {
-        vertices[i] = replacement;
-        setLocation(replacement, i);
-        // The same vertex object better not be in more than one vertex slot.
-        // Once we've found and replaced it, that should be it.
-        return;
-      }
-    }
-    // Bad news if we got down here.
-    throw new IllegalArgumentException("This shape did not have the requested vertex to replace");
+  // The vwedge says which corner it is, so there's no need to go looking for the old vertex.
+  public void replaceVertex(Vwedge vwedge, Vertex replacement) {
+    int index = vwedge.v.shapeBasedNumber;
+    Vertex original = vertices[index];
+    vertices[index] = replacement;
+    replacement.getTiling().getJournal().record(() -> vertices[index] = original);
+    setLocation(replacement, index);
   }
 
   private void setLocation(Vertex referenceVertex, int referenceIndex) {
     // Thanks to the new vertex, we know where we are.
     // Notify all of the other vertices, if they need to know.
     if(orientation != null && referenceVertex.getLocation() != null) {
-      Point knownBaseline = orientation.relativePoints[referenceIndex];
+      CyclotomicPoint knownBaseline = orientation.relativePoints[referenceIndex];
       for(int i = 0; i < 4; i++) {
         if(i != referenceIndex && vertices[i] != null && vertices[i].getLocation() == null) {
           vertices[i].setLocation(referenceVertex.getLocation().plus(orientation.relativePoints[i]).minus(knownBaseline),
@@ -96,8 +91,8 @@ public abstract class Shape {
     return orientation;
   }
 
-  public Point[] getShapePoints() {
-    Point[] myPoints = new Point[4];
+  public CyclotomicPoint[] getShapePoints() {
+    CyclotomicPoint[] myPoints = new CyclotomicPoint[4];
     for(int i = 0; i < 4; i++) {
       myPoints[i] = vertices[i].getLocation();
     }
@@ -0,0 +1,101 @@
+package net.origamimarie.penrose.generation;
+
+// One whole kite or dart, pinned down by where its tip (K or D) sits
+// and which of the ten orientations it is in.
+public class Tile {
+
+  public final boolean kite;
+  public final CyclotomicPoint tip;
+  public final int orientation;
+
+  public Tile(boolean kite, CyclotomicPoint tip, int orientation) {
+    this.kite = kite;
+    this.tip = tip;
+    this.orientation = orientation;
+  }
+
+  // Same order as Shape.getShapePoints(), which is to say V.shapeBasedNumber order.
+  public CyclotomicPoint[] getCorners() {
+    CyclotomicPoint[] corners = new CyclotomicPoint[4];
+    corners[0] = tip;
+    corners[1] = tip.plus(CyclotomicPoint.unit(orientation + 2));
+    CyclotomicPoint axis = CyclotomicPoint.unit(orientation + 1);
+    corners[2] = tip.plus(kite ? axis : axis.times(CyclotomicPoint.INVERSE_PHI));
+    corners[3] = tip.plus(CyclotomicPoint.unit(orientation));
+    return corners;
+  }
+
+  public boolean touches(Point low, Point high) {
+    Point[] corners = getCornerPoints();
+    for(Point corner : corners) {
+      if(corner.isGreaterThanOrEqual(low) && corner.isLessThanOrEqual(high)) {
+        return true;
+      }
+    }
+    // No corners inside, but the rectangle might still be poking into the middle of the tile.
+    // Bounding boxes are good enough for that.
+    double minX = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for(Point corner : corners) {
+      minX = Math.min(minX, corner.x);
+      maxX = Math.max(maxX, corner.x);
+      minY = Math.min(minY, corner.y);
+      maxY = Math.max(maxY, corner.y);
+    }
+    return maxX >= low.x && minX <= high.x && maxY >= low.y && minY <= high.y;
+  }
+
+  // Darts aren't convex, so check both triangles of the tile separately.
+  public boolean contains(Point point) {
+    Point[] corners = getCornerPoints();
+    return triangleContains(corners[0], corners[1], corners[2], point) ||
+            triangleContains(corners[0], corners[2], corners[3], point);
+  }
+
+  private Point[] getCornerPoints() {
+    CyclotomicPoint[] corners = getCorners();
+    Point[] cornerPoints = new Point[corners.length];
+    for(int i = 0; i < corners.length; i++) {
+      cornerPoints[i] = corners[i].toPoint();
+    }
+    return cornerPoints;
+  }
+
+  private static boolean triangleContains(Point a, Point b, Point c, Point p) {
+    double d1 = cross(a, b, p);
+    double d2 = cross(b, c, p);
+    double d3 = cross(c, a, p);
+    boolean hasNegative = d1 < 0 || d2 < 0 || d3 < 0;
+    boolean hasPositive = d1 > 0 || d2 > 0 || d3 > 0;
+    return !(hasNegative && hasPositive);
+  }
+
+  private static double cross(Point a, Point b, Point p) {
+    return (b.x - a.x) * (p.y - a.y) - (b.y - a.y) * (p.x - a.x);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(this == o) {
+      return true;
+    }
+    if(!(o instanceof Tile)) {
+      return false;
+    }
+    Tile tile = (Tile)o;
+    return kite == tile.kite && orientation == tile.orientation && tip.equals(tile.tip);
+  }
+
+  @Override
+  public int hashCode() {
+    return (tip.hashCode() * 31 + orientation) * 2 + (kite ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    return (kite ? "Kite{" : "Dart{") + tip + ", " + orientation + "}";
+  }
+
+}
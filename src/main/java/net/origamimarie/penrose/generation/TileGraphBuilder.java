@@ -0,0 +1,46 @@
+package net.origamimarie.penrose.generation;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Stamps already-decided tiles into the usual Shape/Vertex graph.
+// No autofill, no backup, no rollback: whoever made the tiles already decided everything.
+class TileGraphBuilder {
+
+  private final Tiling tiling = new Tiling();
+  private Vertex liveVertex = null;
+
+  // Pair up halves (or drop duplicate tiles) by tip and orientation.
+  // A half whose partner got left out still stands for the whole tile, which is what we want.
+  static Collection<Tile> uniqueTiles(Iterable<Tile> tiles) {
+    Set<Tile> uniqueTiles = new LinkedHashSet<>();
+    for(Tile tile : tiles) {
+      uniqueTiles.add(tile);
+    }
+    return uniqueTiles;
+  }
+
+  void add(Tile tile) {
+    Vertex tipVertex = new Vertex(tiling);
+    tipVertex.setLocation(tile.tip, liveVertex);
+    if(liveVertex == null) {
+      liveVertex = tipVertex;
+    }
+    Vwedge vwedge = tile.kite ? Vwedge.K0 : Vwedge.D0;
+    Conflict conflict = tipVertex.placeShape(Shape.makeNew(vwedge.associatedShape), vwedge, tile.orientation, false);
+    if(conflict != null) {
+      // Already-decided tiles that don't fit together mean whoever decided them got it wrong.
+      throw new IllegalArgumentException("Tiles don't fit together: " + conflict);
+    }
+  }
+
+  Vertex getLiveVertex() {
+    return liveVertex;
+  }
+
+  Tiling getTiling() {
+    return tiling;
+  }
+
+}
@@ -0,0 +1,131 @@
+package net.origamimarie.penrose.generation;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Walks a finished tiling's vertices and hands out each of its tiles exactly once, as an immutable Tile.
+// Each tile belongs to the vertex at its tip, and to the wedge its orientation says it starts in,
+// so there's no set of visited shapes to keep (and nothing shared, which is what lets it split).
+// If there's a region, vertices too far away for any of their tiles to reach it get skipped
+// before any tiles are made, and the rest get checked with Tile.touches().
+// Nothing gets copied but an array of the vertices, and even that waits until somebody starts walking.
+class TileSpliterator implements Spliterator<Tile> {
+
+  // Every corner of a tile is within one unit of its tip.
+  private static final double TILE_REACH = 1.0;
+  // Below this it's not worth handing off half the vertices.
+  private static final int MIN_SPLIT = 64;
+
+  private final Tiling tiling;
+  private final Point low;
+  private final Point high;
+  private Vertex[] vertices;
+  private int next;
+  private int end;
+  // The vertex being worked on, and which of its wedges to look at next.
+  private Vertex current;
+  private int slot;
+
+  // Null low and high mean all of the tiles.
+  TileSpliterator(Tiling tiling, Point low, Point high) {
+    this.tiling = tiling;
+    this.low = low;
+    this.high = high;
+  }
+
+  private TileSpliterator(Tiling tiling, Point low, Point high, Vertex[] vertices, int next, int end) {
+    this(tiling, low, high);
+    this.vertices = vertices;
+    this.next = next;
+    this.end = end;
+  }
+
+  private void bind() {
+    if(vertices == null) {
+      vertices = tiling.getLiveVertices().toArray(new Vertex[0]);
+      next = 0;
+      end = vertices.length;
+    }
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Tile> action) {
+    bind();
+    while(true) {
+      if(current != null) {
+        while(slot < Vertex.WEDGE_COUNT) {
+          Tile tile = tileAt(current, slot++);
+          if(tile != null && (low == null || tile.touches(low, high))) {
+            action.accept(tile);
+            return true;
+          }
+        }
+        current = null;
+      }
+      if(next >= end) {
+        return false;
+      }
+      Vertex vertex = vertices[next++];
+      if(isNearRegion(vertex)) {
+        current = vertex;
+        slot = 0;
+      }
+    }
+  }
+
+  @Override
+  public Spliterator<Tile> trySplit() {
+    bind();
+    int remaining = end - next;
+    if(remaining < MIN_SPLIT) {
+      return null;
+    }
+    int middle = next + remaining / 2;
+    TileSpliterator prefix = new TileSpliterator(tiling, low, high, vertices, next, middle);
+    // Whatever's left of the current vertex stays with this half.
+    next = middle;
+    if(current != null) {
+      prefix.current = current;
+      prefix.slot = slot;
+      current = null;
+    }
+    return prefix;
+  }
+
+  // There are about as many tiles as vertices.
+  @Override
+  public long estimateSize() {
+    bind();
+    return end - next;
+  }
+
+  // Not IMMUTABLE, since nothing stops the tiling from changing underneath it.  Callers just aren't supposed to.
+  @Override
+  public int characteristics() {
+    return ORDERED | DISTINCT | NONNULL;
+  }
+
+  private boolean isNearRegion(Vertex vertex) {
+    if(low == null) {
+      return true;
+    }
+    double x = vertex.getLocation().getX();
+    double y = vertex.getLocation().getY();
+    return x >= low.x - TILE_REACH && x <= high.x + TILE_REACH && y >= low.y - TILE_REACH && y <= high.y + TILE_REACH;
+  }
+
+  // The tile whose tip is at this vertex and that starts in this wedge, if there is one.
+  private static Tile tileAt(Vertex vertex, int slot) {
+    Shape shape = vertex.getWedge(slot);
+    if(shape == null) {
+      return null;
+    }
+    boolean kite = shape instanceof Kite;
+    Vwedge tipVwedge = kite ? Vwedge.K0 : Vwedge.D0;
+    if(shape.getVertex(tipVwedge) != vertex || shape.getOrientation().getWedgeLocation(tipVwedge) != slot) {
+      return null;
+    }
+    return new Tile(kite, vertex.getLocation(), slot);
+  }
+
+}
@@ -0,0 +1,270 @@
+package net.origamimarie.penrose.generation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// A finished tiling packed into parallel arrays of ints and bytes,
+// for patches big enough that object headers and pointers would be most of the heap.
+// Tiles and vertices are just ids (array indexes), and nothing can change once it's built.
+// Corners go in V.shapeBasedNumber order like they do in Shape,
+// and each vertex has the same ten wedge slots that Vertex does.
+// That's 18 bytes per tile (kind, orientation, four vertex ids) and 66 per vertex (four coordinates, ten tile ids,
+// ten vwedges), and a Penrose tiling has about one vertex per tile, so 84 bytes per tile.
+// Measured on a 300x300 pentagrid after GC, the same tiles as a Shape/Vertex graph held on to 311 bytes per tile.
+public class TileStore {
+
+  public static final int NO_TILE = -1;
+  private static final int CORNERS = 4;
+  private static final int COEFFICIENTS = 4;
+  private static final int DART = 0;
+  private static final int KITE = 1;
+  private static final Vwedge[][] VWEDGES = new Vwedge[][]{Dart.DART_VWEDGES, Kite.KITE_VWEDGES};
+  private static final Vwedge[] TIP_VWEDGES = new Vwedge[]{Vwedge.D0, Vwedge.K0};
+  private static final Vwedge[] ALL_VWEDGES = Vwedge.values();
+  // [dart or kite][orientation][index into VWEDGES], the slot that vwedge lands in around its vertex.
+  private static final int[][][] SLOTS = new int[2][Vertex.WEDGE_COUNT][Vertex.WEDGE_COUNT];
+  // [dart or kite][orientation][corner], where the corner is relative to the tip.
+  private static final CyclotomicPoint[][][] CORNER_OFFSETS = new CyclotomicPoint[2][Vertex.WEDGE_COUNT][CORNERS];
+
+  static {
+    // Borrow the orientations the shapes already know about, and flatten them out.
+    Shape[] shapes = new Shape[]{new Dart(), new Kite()};
+    for(int kind = DART; kind <= KITE; kind++) {
+      for(int orientation = 0; orientation < Vertex.WEDGE_COUNT; orientation++) {
+        Orientation o = shapes[kind].getOrientation(TIP_VWEDGES[kind], orientation);
+        for(int j = 0; j < VWEDGES[kind].length; j++) {
+          SLOTS[kind][orientation][j] = o.getWedgeLocation(VWEDGES[kind][j]);
+        }
+        for(int corner = 0; corner < CORNERS; corner++) {
+          CORNER_OFFSETS[kind][orientation][corner] = o.relativePoints[corner].minus(o.relativePoints[0]);
+        }
+      }
+    }
+  }
+
+  // Per tile.
+  private byte[] tileKinds;
+  private byte[] tileOrientations;
+  private int[] tileVertices;
+  private int tileCount;
+
+  // Per vertex.
+  private int[] vertexCoefficients;
+  private int[] wedgeTiles;
+  // Vwedge ordinals, or -1 for an empty wedge.
+  private byte[] wedgeVwedges;
+  private int vertexCount;
+
+  // Vertex id + 1 by location, open addressing, zero for empty.
+  // Only needed while building, so it gets thrown away afterwards.
+  private int[] vertexLookup;
+
+  private TileStore(int expectedTiles) {
+    int capacity = Math.max(16, expectedTiles);
+    tileKinds = new byte[capacity];
+    tileOrientations = new byte[capacity];
+    tileVertices = new int[capacity * CORNERS];
+    vertexCoefficients = new int[capacity * COEFFICIENTS];
+    wedgeTiles = new int[capacity * Vertex.WEDGE_COUNT];
+    Arrays.fill(wedgeTiles, NO_TILE);
+    wedgeVwedges = new byte[capacity * Vertex.WEDGE_COUNT];
+    Arrays.fill(wedgeVwedges, (byte)-1);
+    vertexLookup = new int[Integer.highestOneBit(capacity) * 4];
+  }
+
+  // Duplicates are fine, they just get skipped.
+  public static TileStore fromTiles(Collection<Tile> tiles) {
+    TileStore store = new TileStore(tiles.size());
+    for(Tile tile : tiles) {
+      store.add(tile.kite, tile.tip, tile.orientation);
+    }
+    store.finish();
+    return store;
+  }
+
+  // Everything touching these vertices, copied out of the Shape/Vertex graph.
+  public static TileStore fromVertices(Collection<Vertex> vertices) {
+    TileStore store = new TileStore(vertices.size());
+    Set<Shape> visitedShapes = new HashSet<>();
+    for(Vertex vertex : vertices) {
+      for(Shape shape : vertex.getWedges()) {
+        if(shape != null && visitedShapes.add(shape)) {
+          int kind = shape instanceof Kite ? KITE : DART;
+          Vwedge tipVwedge = TIP_VWEDGES[kind];
+          store.add(kind == KITE, shape.getVertex(tipVwedge).getLocation(), shape.getOrientation().getWedgeLocation(tipVwedge));
+        }
+      }
+    }
+    store.finish();
+    return store;
+  }
+
+  public int getTileCount() {
+    return tileCount;
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  public boolean isKite(int tile) {
+    return tileKinds[tile] == KITE;
+  }
+
+  public int getOrientation(int tile) {
+    return tileOrientations[tile];
+  }
+
+  public int getTileVertex(int tile, int corner) {
+    return tileVertices[tile * CORNERS + corner];
+  }
+
+  // Same as Shape.getCounterclockwiseVertex, or -1 if the vertex isn't on this tile.
+  public int getCounterclockwiseVertex(int tile, int vertex) {
+    for(int corner = 0; corner < CORNERS; corner++) {
+      if(tileVertices[tile * CORNERS + corner] == vertex) {
+        return tileVertices[tile * CORNERS + (corner + CORNERS - 1) % CORNERS];
+      }
+    }
+    return -1;
+  }
+
+  // The tile filling this wedge of the vertex, or NO_TILE.
+  public int getWedgeTile(int vertex, int slot) {
+    return wedgeTiles[vertex * Vertex.WEDGE_COUNT + slot];
+  }
+
+  // Which part of its tile fills this wedge of the vertex, or null.
+  public Vwedge getVwedge(int vertex, int slot) {
+    byte ordinal = wedgeVwedges[vertex * Vertex.WEDGE_COUNT + slot];
+    return ordinal < 0 ? null : ALL_VWEDGES[ordinal];
+  }
+
+  public double getX(int vertex) {
+    int i = vertex * COEFFICIENTS;
+    return CyclotomicPoint.getX(vertexCoefficients[i], vertexCoefficients[i + 1], vertexCoefficients[i + 2], vertexCoefficients[i + 3]);
+  }
+
+  public double getY(int vertex) {
+    int i = vertex * COEFFICIENTS;
+    return CyclotomicPoint.getY(vertexCoefficients[i], vertexCoefficients[i + 1], vertexCoefficients[i + 2], vertexCoefficients[i + 3]);
+  }
+
+  public CyclotomicPoint getLocation(int vertex) {
+    int i = vertex * COEFFICIENTS;
+    return new CyclotomicPoint(vertexCoefficients[i], vertexCoefficients[i + 1], vertexCoefficients[i + 2], vertexCoefficients[i + 3]);
+  }
+
+  // What all of the arrays add up to, not counting the few bytes of array headers.
+  public long getByteCount() {
+    return tileKinds.length + tileOrientations.length + 4L * tileVertices.length +
+            4L * vertexCoefficients.length + 4L * wedgeTiles.length + wedgeVwedges.length;
+  }
+
+  private void add(boolean kite, CyclotomicPoint tip, int orientation) {
+    int kind = kite ? KITE : DART;
+    orientation = Vertex.normalizeWedgeNumber(orientation);
+    int tipVertex = findOrAddVertex(tip);
+    // Is this exact tile already here?
+    int existingTile = getWedgeTile(tipVertex, SLOTS[kind][orientation][0]);
+    if(existingTile != NO_TILE && tileKinds[existingTile] == kind && tileOrientations[existingTile] == orientation) {
+      return;
+    }
+
+    if(tileCount == tileKinds.length) {
+      int capacity = tileCount * 2;
+      tileKinds = Arrays.copyOf(tileKinds, capacity);
+      tileOrientations = Arrays.copyOf(tileOrientations, capacity);
+      tileVertices = Arrays.copyOf(tileVertices, capacity * CORNERS);
+    }
+    int tile = tileCount++;
+    tileKinds[tile] = (byte)kind;
+    tileOrientations[tile] = (byte)orientation;
+    tileVertices[tile * CORNERS] = tipVertex;
+    for(int corner = 1; corner < CORNERS; corner++) {
+      tileVertices[tile * CORNERS + corner] = findOrAddVertex(tip.plus(CORNER_OFFSETS[kind][orientation][corner]));
+    }
+
+    for(int j = 0; j < VWEDGES[kind].length; j++) {
+      Vwedge vwedge = VWEDGES[kind][j];
+      int vertex = tileVertices[tile * CORNERS + vwedge.v.shapeBasedNumber];
+      int i = vertex * Vertex.WEDGE_COUNT + SLOTS[kind][orientation][j];
+      if(wedgeTiles[i] != NO_TILE) {
+        throw new IllegalArgumentException("Two different tiles overlap at " + getLocation(vertex));
+      }
+      wedgeTiles[i] = tile;
+      wedgeVwedges[i] = (byte)vwedge.ordinal();
+    }
+  }
+
+  private int findOrAddVertex(CyclotomicPoint location) {
+    if((vertexCount + 1) * 2 > vertexLookup.length) {
+      growVertexLookup();
+    }
+    if(vertexCount * COEFFICIENTS == vertexCoefficients.length) {
+      int capacity = vertexCount * 2;
+      vertexCoefficients = Arrays.copyOf(vertexCoefficients, capacity * COEFFICIENTS);
+      wedgeTiles = Arrays.copyOf(wedgeTiles, capacity * Vertex.WEDGE_COUNT);
+      Arrays.fill(wedgeTiles, vertexCount * Vertex.WEDGE_COUNT, wedgeTiles.length, NO_TILE);
+      wedgeVwedges = Arrays.copyOf(wedgeVwedges, capacity * Vertex.WEDGE_COUNT);
+      Arrays.fill(wedgeVwedges, vertexCount * Vertex.WEDGE_COUNT, wedgeVwedges.length, (byte)-1);
+    }
+    // Write the location down where the next new vertex would go, then see if it's already somebody else.
+    location.copyCoefficientsInto(vertexCoefficients, vertexCount * COEFFICIENTS);
+    int mask = vertexLookup.length - 1;
+    for(int slot = slotFor(vertexCount); ; slot = (slot + 1) & mask) {
+      int vertex = vertexLookup[slot] - 1;
+      if(vertex < 0) {
+        vertexLookup[slot] = vertexCount + 1;
+        return vertexCount++;
+      }
+      if(sameLocation(vertex, vertexCount)) {
+        return vertex;
+      }
+    }
+  }
+
+  private boolean sameLocation(int a, int b) {
+    for(int k = 0; k < COEFFICIENTS; k++) {
+      if(vertexCoefficients[a * COEFFICIENTS + k] != vertexCoefficients[b * COEFFICIENTS + k]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int slotFor(int vertex) {
+    int hash = 0;
+    for(int k = 0; k < COEFFICIENTS; k++) {
+      hash = hash * 31 + vertexCoefficients[vertex * COEFFICIENTS + k];
+    }
+    // Same Fibonacci hashing as VertexIndex.
+    return (int)((hash * 0x9E3779B97F4A7C15L) >>> 32) & (vertexLookup.length - 1);
+  }
+
+  private void growVertexLookup() {
+    vertexLookup = new int[vertexLookup.length * 2];
+    int mask = vertexLookup.length - 1;
+    for(int vertex = 0; vertex < vertexCount; vertex++) {
+      int slot = slotFor(vertex);
+      while(vertexLookup[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      vertexLookup[slot] = vertex + 1;
+    }
+  }
+
+  // Trim everything down to size and drop the lookup table.
+  private void finish() {
+    tileKinds = Arrays.copyOf(tileKinds, tileCount);
+    tileOrientations = Arrays.copyOf(tileOrientations, tileCount);
+    tileVertices = Arrays.copyOf(tileVertices, tileCount * CORNERS);
+    vertexCoefficients = Arrays.copyOf(vertexCoefficients, vertexCount * COEFFICIENTS);
+    wedgeTiles = Arrays.copyOf(wedgeTiles, vertexCount * Vertex.WEDGE_COUNT);
+    wedgeVwedges = Arrays.copyOf(wedgeVwedges, vertexCount * Vertex.WEDGE_COUNT);
+    vertexLookup = null;
+  }
+
+}
@@ -0,0 +1,127 @@
+package net.origamimarie.penrose.generation;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Everything that belongs to a whole tiling rather than to any one vertex.
+// Every vertex in a tiling points at the same one of these,
+// so making a vertex (four of them for every new shape) doesn't mean making a pile of empty collections too.
+// It's also everything that changes while generating, so separate tilings can be generated on separate threads,
+// and a tiling made from a seed comes out the same every time.
+public class Tiling {
+
+  private final Set<Vertex> liveVertices;
+  private final VertexIndex vertexIndex;
+  private final Frontier frontier;
+  private final Journal journal;
+  private final SplittableRandom random;
+  // Vertices waiting to be checked for forced shapes.
+  private final Deque<Vertex> autoFillQueue;
+  // Shapes tried with autofill, and how many of those had to be rolled back.
+  private long attemptCount = 0;
+  private long rollbackCount = 0;
+  private CandidateWeights candidateWeights;
+
+  public Tiling() {
+    this(new SplittableRandom());
+  }
+
+  public Tiling(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  // For handing each of a bunch of jobs its own random.split().
+  public Tiling(SplittableRandom random) {
+    // Insertion order, not identity hash order, so that everything downstream comes out the same for the same seed.
+    liveVertices = new LinkedHashSet<>();
+    vertexIndex = new VertexIndex();
+    frontier = new Frontier();
+    journal = new Journal();
+    this.random = random;
+    autoFillQueue = new ArrayDeque<>();
+    candidateWeights = new CandidateWeights();
+  }
+
+  Set<Vertex> getLiveVertices() {
+    return liveVertices;
+  }
+
+  // Take over all of another tiling's vertices, so that the two are one tiling from now on.
+  // Nothing can be in both (sew any seams first), and this isn't journaled.
+  void absorb(Tiling other) {
+    for(Vertex vertex : other.liveVertices) {
+      vertex.setTiling(this);
+    }
+    liveVertices.addAll(other.liveVertices);
+    vertexIndex.putAll(other.vertexIndex);
+    frontier.addAll(other.frontier);
+  }
+
+  // Every tile, made as the stream gets to it.  Add .parallel() to split the work up.
+  // Don't change the tiling while the stream is going.
+  public Stream<Tile> tiles() {
+    return StreamSupport.stream(new TileSpliterator(this, null, null), false);
+  }
+
+  // Just the tiles that touch the rectangle.
+  // Vertices too far away get skipped before any of their tiles are made.
+  public Stream<Tile> tiles(Point low, Point high) {
+    return StreamSupport.stream(new TileSpliterator(this, low, high), false);
+  }
+
+  public Frontier getFrontier() {
+    return frontier;
+  }
+
+  VertexIndex getVertexIndex() {
+    return vertexIndex;
+  }
+
+  Journal getJournal() {
+    return journal;
+  }
+
+  SplittableRandom getRandom() {
+    return random;
+  }
+
+  Deque<Vertex> getAutoFillQueue() {
+    return autoFillQueue;
+  }
+
+  void countAttempt() {
+    attemptCount++;
+  }
+
+  void countRollback() {
+    rollbackCount++;
+  }
+
+  public long getAttemptCount() {
+    return attemptCount;
+  }
+
+  public long getRollbackCount() {
+    return rollbackCount;
+  }
+
+  public CandidateWeights getCandidateWeights() {
+    return candidateWeights;
+  }
+
+  // For picking up where an earlier run's weights left off.
+  public void setCandidateWeights(CandidateWeights candidateWeights) {
+    this.candidateWeights = candidateWeights;
+  }
+
+  // What fraction of the shapes tried had to be taken back out again.
+  public double getRollbackRate() {
+    return attemptCount == 0 ? 0.0 : (double)rollbackCount / attemptCount;
+  }
+
+}
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Slf4j
 public class TilingGenerator {
@@ -12,34 +13,51 @@ public class TilingGenerator {
   Vertex liveVertex;
 
   public TilingGenerator(Point low, Point high) throws IOException {
-    liveVertex = new Vertex();
-    liveVertex.setLocation(new Point(0.0, 0.0), null);
+    this(low, high, new Tiling());
+  }
+
+  // Same thing, but with whatever randomness (or lack of it) the tiling brings.
+  public TilingGenerator(Point low, Point high, Tiling tiling) {
+    this(low, high, tiling, FrontierStrategy.OLDEST_FIRST);
+  }
+
+  // And with a say in which vertex gets grown from next.
+  public TilingGenerator(Point low, Point high, Tiling tiling, FrontierStrategy strategy) {
+    liveVertex = new Vertex(tiling);
+    liveVertex.setLocation(CyclotomicPoint.ORIGIN, null);
+    // The frontier keeps track of the unfinished vertices in the rectangle as we go,
+    // so picking the next one doesn't mean looking at every vertex all over again.
+    Frontier frontier = tiling.getFrontier();
+    frontier.setRegion(low, high);
 
     boolean finished = false;
     int consecutiveBadAddCount = 0;
     int badAddThreshold = 100;
     while(!finished) {
-      boolean badAdd = !liveVertex.addRandomShape();
+      // Batch jobs get interrupted when they run out of time.
+      if(Thread.currentThread().isInterrupted()) {
+        throw new IllegalStateException("Interrupted while generating the tiling");
+      }
+      boolean badAdd = !liveVertex.addRandomShape(strategy);
       consecutiveBadAddCount = badAdd ? consecutiveBadAddCount+1 : 0;
       if(consecutiveBadAddCount >= badAddThreshold) {
         log.debug("{} consecutive bad adds in a row, we're out!", badAddThreshold);
       }
-      finished = true;
-      for(Vertex tempVertex : liveVertex.getAllLiveNonFullVertices()) {
-        if(tempVertex.getLocation().isGreaterThanOrEqual(low) && tempVertex.getLocation().isLessThanOrEqual(high)) {
-          liveVertex = tempVertex;
-          // Found it.  We can loop again.
-          finished = false;
-          break;
-        }
+      Vertex nextVertex = frontier.next(strategy);
+      if(nextVertex == null) {
+        finished = true;
+      } else {
+        // Found one.  We can loop again.
+        liveVertex = nextVertex;
       }
     }
+    log.debug("{} rolled back {} of {} shapes ({})", strategy, tiling.getRollbackCount(), tiling.getAttemptCount(), tiling.getRollbackRate());
   }
 
   public TilingGenerator() {
     liveVertex = new Vertex();
     Vertex originalVertex = liveVertex;
-    liveVertex.setLocation(new Point(0.0, 0.0), null);
+    liveVertex.setLocation(CyclotomicPoint.ORIGIN, null);
 
     Dart currentDart = new Dart();
     liveVertex.addShape(currentDart, Vwedge.D0, 1, true);
@@ -87,11 +105,19 @@ public class TilingGenerator {
     currentVertex.addShape(currentKite, Vwedge.M0, 8, true);*/
   }
 
-  public List<Point[]> getAllPointLists() {
+  public List<CyclotomicPoint[]> getAllPointLists() {
     return liveVertex.getAllShapePoints();
   }
 
   public Set<Vertex> getAllVertices() {
     return liveVertex.getAllLiveVertices();
   }
+
+  public Stream<Tile> tiles() {
+    return liveVertex.getTiling().tiles();
+  }
+
+  public Stream<Tile> tiles(Point low, Point high) {
+    return liveVertex.getTiling().tiles(low, high);
+  }
 }
@@ -1,17 +1,13 @@
 package net.origamimarie.penrose.generation;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.ListUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Random;
 import java.util.Set;
 
 @Slf4j
@@ -19,8 +15,11 @@ public class Vertex implements Comparable<Vertex> {
 
   public static final int WEDGE_COUNT = 10;
 
-  private static Random rand = new Random();
   private static List<Vwedge[]> allVwedgeConfigurations;
+  // A set of configurations is a long with one bit per configuration (there are fewer than 64 of them).
+  private static long everyConfiguration;
+  // Which configurations have this vwedge in this slot, by slot and then vwedge ordinal.
+  private static long[][] configurationsWithVwedge;
 
   static {
     // There are a fixed number of possible VWedge configurations.
@@ -68,29 +67,41 @@ public class Vertex implements Comparable<Vertex> {
         allVwedgeConfigurations.add(tempVwedge);
       }
     }
+
+    // Now boil the configurations down into masks,
+    // so that narrowing down the possibilities is just ANDing longs together.
+    everyConfiguration = (1L << allVwedgeConfigurations.size()) - 1;
+    configurationsWithVwedge = new long[WEDGE_COUNT][Vwedge.values().length];
+    for(int c = 0; c < allVwedgeConfigurations.size(); c++) {
+      for(int i = 0; i < WEDGE_COUNT; i++) {
+        configurationsWithVwedge[i][allVwedgeConfigurations.get(c)[i].ordinal()] |= 1L << c;
+      }
+    }
   }
 
   private Shape[] wedges;
   private Vwedge[] vwedges;
-  private List<Vwedge[]> currentPossibleVwedges;
+  private long possibleConfigurations;
   private int openWedges;
-  private boolean dead;
-  private Vertex replacement = null;
+  // Union-find parent.  Null for a vertex that's still itself,
+  // otherwise whatever ate it (or something closer to the top, once the path gets compressed).
+  private Vertex parent = null;
+  private boolean queuedForAutoFill = false;
 
-  private Point location = null;
-  private Set<Vertex> allTheLiveVertices = null;
-  private Point.PointSet pointSet = null;
-  private Map<Point, Vertex> pointsToVertices = null;
+  private CyclotomicPoint location = null;
+  // Which tiling this is part of.  New shapes' vertices pick it up when they get added.
+  private Tiling tiling;
 
   public Vertex() {
+    this(null);
+  }
+
+  public Vertex(Tiling tiling) {
     openWedges = WEDGE_COUNT;
     wedges = new Shape[WEDGE_COUNT];
-    vwedges = new Vwedge[]{null, null, null, null, null, null, null, null, null, null};
-    dead = false;
-    currentPossibleVwedges = new ArrayList<>(allVwedgeConfigurations);
-    allTheLiveVertices = new HashSet<>();
-    pointSet = new Point.PointSet();
-    pointsToVertices = new HashMap<>();
+    vwedges = new Vwedge[WEDGE_COUNT];
+    possibleConfigurations = everyConfiguration;
+    this.tiling = tiling;
   }
 
   public boolean isFull() {
@@ -98,7 +109,7 @@ public class Vertex implements Comparable<Vertex> {
   }
 
   public boolean isDead() {
-    return dead;
+    return parent != null;
   }
 
   public Shape[] getWedges() {
@@ -107,6 +118,11 @@ public class Vertex implements Comparable<Vertex> {
     return wedgesCopy;
   }
 
+  // One wedge, without copying all ten.
+  public Shape getWedge(int wedge) {
+    return wedges[wedge];
+  }
+
   public Vwedge[] getVwedges() {
     Vwedge[] vwedgesCopy = new Vwedge[WEDGE_COUNT];
     System.arraycopy(vwedges, 0, vwedgesCopy, 0, WEDGE_COUNT);
@@ -114,11 +130,19 @@ public class Vertex implements Comparable<Vertex> {
   }
 
   public Vertex calculateReplacement() {
-    if(!dead) {
-      return this;
-    } else {
-      return replacement.calculateReplacement();
+    Vertex root = this;
+    while(root.parent != null) {
+      root = root.parent;
+    }
+    // Path compression, so nobody has to walk this far again.
+    // It still has to be journaled, or undoing a merge further up could leave these pointing at the wrong vertex.
+    Vertex vertex = this;
+    while(vertex.parent != null && vertex.parent != root) {
+      Vertex next = vertex.parent;
+      vertex.setParent(root);
+      vertex = next;
     }
+    return root;
   }
 
   // The point here is to make queueing nice.
@@ -130,281 +154,354 @@ public class Vertex implements Comparable<Vertex> {
 
   // Find an open slot, figure out what to put in it, and drop it in.
   public boolean addRandomShape() {
-    if(isFull() || currentPossibleVwedges.size() == 0) {
+    return addRandomShape(FrontierStrategy.OLDEST_FIRST);
+  }
+
+  // Same, but the strategy picks the slot and the configuration.
+  boolean addRandomShape(FrontierStrategy strategy) {
+    if(isFull() || possibleConfigurations == 0) {
       return false;
     }
-    // Start somewhere random.
-    int seekStart = rand.nextInt(10);
-    // Find an open spot.
-    for(int i = 0; i < 10; i++) {
-      if(vwedges[seekStart] == null) {
-        break;
-      } else {
-        seekStart = normalizeWedgeNumber(seekStart+1);
-      }
-    }
-
-    // Okay, now we have a random empty space.
-    // So next we need a shape to drop in.
-    // Pick a random item from currentPossibleVwedges and work it out from there.
-    int randomNumber = rand.nextInt(currentPossibleVwedges.size());
-    Vwedge vwedge = currentPossibleVwedges.get(randomNumber)[seekStart];
-    return addShape(Shape.makeNew(vwedge.associatedShape), vwedge, seekStart, true);
+    CandidateWeights weights = tiling.getCandidateWeights();
+    int chosenOpenWedges = openWedges;
+    FrontierStrategy.Candidate candidate = strategy.chooseCandidate(this, tiling.getRandom(), weights);
+    Vwedge vwedge = allVwedgeConfigurations.get(candidate.configuration)[candidate.slot];
+    boolean added = addShape(Shape.makeNew(vwedge.associatedShape), vwedge, candidate.slot, true);
+    weights.record(candidate.configuration, chosenOpenWedges, !added);
+    return added;
   }
 
   public boolean addShape(Shape shape, Vwedge vwedge, int vwedgeLocation, boolean autoFillAll) {
+    return placeShape(shape, vwedge, vwedgeLocation, autoFillAll) == null;
+  }
+
+  // Same as addShape, but says what went wrong.  Null means the shape went in fine.
+  public Conflict placeShape(Shape shape, Vwedge vwedge, int vwedgeLocation, boolean autoFillAll) {
     // We have a problem to deal with here.
     // The shape we add may cause problems later down the line.
-    // Now we don't want to keep a save stack every single time because that gets heavy fast.
-    // So we'll just keep one if this shape wasn't autoFilled (because autoFilling has no choices anyway).
+    // So if this shape wasn't autoFilled (because autoFilling has no choices anyway),
+    // everything that changes from here on gets written down in the journal so it can be undone.
     // This is indicated by autoFillAll being true (because being false means we're in the middle
     // of an autoFill sequence usually).
-    // We want to capture state via shapes (not vertices) because vertices can be merged and killed.
-    List<Shape> allTheBackedUpShapes = new ArrayList<>();
+    Journal journal = tiling.getJournal();
+    int journalMark = autoFillAll ? journal.begin() : 0;
     if(autoFillAll) {
-      allTheBackedUpShapes = getAllShapes();
+      tiling.countAttempt();
     }
 
-    // Help the shape figure out its orientation.
-    shape.setOrientation(vwedge, vwedgeLocation);
-    // Add the shape to this vertex, which also adds this vertex to the shape and recursively merges vertices.
     for(Vertex vertex : shape.getVertices()) {
-      vertex.allTheLiveVertices = this.allTheLiveVertices;
-      vertex.pointSet = this.pointSet;
-      vertex.pointsToVertices = this.pointsToVertices;
+      vertex.tiling = this.tiling;
     }
-    addShapeWithOrientation(shape, vwedge);
-    //dumpToSvgDebug(false, false);
+    // Help the shape figure out its orientation.
+    // The shape is brand new, so there's nothing to undo about this part.
+    shape.setOrientation(vwedge, vwedgeLocation);
 
     // This prevents deeply nested autoFillAll loops,
     // which tend to cause problems and are unnecessary.
     if(autoFillAll) {
-      // There might be a better way of doing this, I'm not sure.
-      // This sure is quick and easy though.
+      Conflict conflict;
       try {
-        autoFillAllTheShapes();
-      } catch (Exception e) {
+        // Add the shape to this vertex, which also adds this vertex to the shape and recursively merges vertices.
+        conflict = addShapeWithOrientation(shape, vwedge);
+        //dumpToSvgDebug(false, false);
+        if(conflict == null) {
+          conflict = autoFillAllTheShapes();
+        }
+      } catch (RuntimeException e) {
+        // That's an actual bug, not a bad choice of shape.
+        // Still put everything back so the tiling isn't left half-changed.
+        journal.rollback(journalMark);
+        clearAutoFillQueue();
+        throw e;
+      }
+      if(conflict != null) {
         // Well, looks like that autoFill went badly.
         // I'm going to assume it's because the shape was chosen badly.
         // Time to roll back!
-        revertToKnownGoodShapeSet(allTheBackedUpShapes);
-        return false;
-      }
-    }
-    // No problem adding this shape.
-    return true;
-  }
-
-  // Something went badly, and we're removing all shapes except this set of known good shapes.
-  private void revertToKnownGoodShapeSet(List<Shape> shapeList) {
-    // Since we're here, it's a good idea to compact this down to a Set for seek performance.
-    Set<Shape> shapeSet = new HashSet<>(shapeList);
-    // Copying out to a list so we can delete them from the original set as we go
-    // without concurrency errors.
-    List<Vertex> vertexList = new ArrayList<>(allTheLiveVertices);
-    for(Vertex vertex : vertexList) {
-      // Remove all shapes that aren't in the set from this vertex.
-      // Keep a count of what remains.
-      vertex.openWedges = 0;
-      for(int i = 0; i < WEDGE_COUNT; i++) {
-        if(vertex.wedges[i] != null && !shapeSet.contains(vertex.wedges[i])) {
-          vertex.wedges[i] = null;
-          vertex.vwedges[i] = null;
-        }
-        vertex.openWedges += vertex.wedges[i] == null ? 1 : 0;
-      }
-
-      // Now we've removed all of the shapes that aren't in the set.
-      // It's now possible that this vertex doesn't have any shapes anymore.
-      // That means it's dead.
-      if(vertex.openWedges == WEDGE_COUNT) {
-        vertex.dead = true;
-        allTheLiveVertices.remove(vertex);
-        pointsToVertices.remove(vertex.location);
-        pointSet.removePoint(vertex.location);
-        // No point in doing any other calculations on this vertex, it's dead.
-        continue;
-      }
-      // Start over with the possible vwedges.
-      if(vertex.openWedges > 0) {
-        vertex.completelyRecalculatePossibleVwedges();
+        journal.rollback(journalMark);
+        clearAutoFillQueue();
+        tiling.countRollback();
+        return conflict;
       }
+      journal.commit(journalMark);
+      // No problem adding this shape.
+      return null;
+    } else {
+      return addShapeWithOrientation(shape, vwedge);
     }
   }
 
   // Only call this if the orientation is set on the shape already.
   // Probably an NPE if you mess up.
-  public void addShapeWithOrientation(Shape shape, Vwedge vwedge) {
+  // Returns the conflict if there was one, and then the tiling is half-changed until somebody rolls it back.
+  public Conflict addShapeWithOrientation(Shape shape, Vwedge vwedge) {
     // Need to call replace on just this one,
     // so that the location can get set for all of the vertices on this shape.
-    mergeVertexIntoThis(shape.getVertex(vwedge));
-    shape.replaceVertex(shape.getVertex(vwedge), this);
+    Conflict conflict = mergeVertexIntoThis(shape.getVertex(vwedge));
+    if(conflict != null) {
+      return conflict;
+    }
+    shape.replaceVertex(vwedge, this);
     for(Vertex vertex : shape.getVertices()) {
-      vertex.findLocationCopyAndMerge();
+      conflict = vertex.findLocationCopyAndMerge();
+      if(conflict != null) {
+        return conflict;
+      }
     }
+    return null;
+  }
+
+  // Move this vertex over from some other tiling, merging it with whatever's already at the same spot.
+  // The shapes on the two sides had better not overlap, or that's a conflict.
+  Conflict joinTiling(Tiling target) {
+    tiling = target;
+    return findLocationCopyAndMerge();
   }
 
-  private void findLocationCopyAndMerge() {
-    Point similarExisting = pointSet.getSimilarPoint(location);
-    if(similarExisting != null && similarExisting != location) {
+  // Merge this into whatever a neighboring tiling already has at the same spot, if it has anything there.
+  // Only this vertex's own tiling and the neighbor change, so separate pairs of tilings can be sewn at the same time.
+  // Sewing never gets rolled back, so leaving its own tiling isn't journaled.
+  Conflict sewInto(Tiling neighbor) {
+    if(neighbor.getVertexIndex().get(location) == null) {
+      return null;
+    }
+    tiling.getVertexIndex().remove(this);
+    tiling.getLiveVertices().remove(this);
+    tiling.getFrontier().remove(this);
+    return joinTiling(neighbor);
+  }
+
+  private Conflict findLocationCopyAndMerge() {
+    VertexIndex vertexIndex = tiling.getVertexIndex();
+    Vertex vertexToMergeWith = vertexIndex.get(location);
+    if(vertexToMergeWith == null) {
+      // This point isn't in our lists yet, so add it.
+      vertexIndex.put(this);
+      tiling.getLiveVertices().add(this);
+      tiling.getFrontier().update(this, true);
+      queueForAutoFill();
+      tiling.getJournal().record(() -> {
+        vertexIndex.remove(this);
+        tiling.getLiveVertices().remove(this);
+        tiling.getFrontier().remove(this);
+      });
+    } else if(vertexToMergeWith != this) {
       // This means there's a vertex to merge with.
-      Vertex vertexToMergeWith = pointsToVertices.get(similarExisting);
       // This is signing up to be eaten (and declared dead) by that vertex.
-      vertexToMergeWith.mergeVertexIntoThis(this);
-    } else {
-      // This point isn't in our lists yet, so add it.
-      pointSet.addPoint(location);
-      allTheLiveVertices.add(this);
-      pointsToVertices.put(location, this);
+      return vertexToMergeWith.mergeVertexIntoThis(this);
     }
+    return null;
   }
 
-  private void mergeVertexIntoThis(Vertex vertex) {
+  private Conflict mergeVertexIntoThis(Vertex vertex) {
     // It's dead.  This ate it.
-    vertex.dead = true;
-    vertex.replacement = this;
-    allTheLiveVertices.remove(vertex);
-
-    Set<Shape> shapesToReplaceVerticesIn = new HashSet<>();
+    // The vertex doing the eating is always the one in the index (or about to be),
+    // since it's the one holding the wedges, so it stays the root no matter how big either side is.
+    boolean wasLive = tiling.getLiveVertices().remove(vertex);
+    tiling.getFrontier().remove(vertex);
+    tiling.getJournal().record(() -> {
+      if(wasLive) {
+        tiling.getLiveVertices().add(vertex);
+      }
+      vertex.updateFrontier();
+    });
+    // Undo steps run newest first, so recording this one after means the parent pointer is gone again
+    // by the time the frontier takes another look, and the vertex doesn't look dead to it.
+    vertex.setParent(this);
+
+    // Every shape the dead vertex was in has it at a known corner, so pointing them at this is one write each.
+    Shape lastShape = null;
     for(int i = 0; i < WEDGE_COUNT; i++) {
       if(vertex.wedges[i] != null && this.wedges[i] != null && vertex.wedges[i] != this.wedges[i]) {
-        throw new IllegalArgumentException("Trying to merge two vertices that have incompatible wedges.  ");
+        return new Conflict(Conflict.Reason.INCOMPATIBLE_WEDGES, location);
       }
       if(vertex.wedges[i] != null) {
-        this.wedges[i] = vertex.wedges[i];
-        openWedges--;
-        this.vwedges[i] = vertex.vwedges[i];
-        shapesToReplaceVerticesIn.add(wedges[i]);
+        fillWedge(i, vertex.wedges[i], vertex.vwedges[i]);
+        // A shape's wedges at one corner are next to each other, so this mostly does each shape once.
+        // Doing one twice wouldn't hurt anything anyway.
+        if(wedges[i] != lastShape) {
+          wedges[i].replaceVertex(vwedges[i], this);
+          lastShape = wedges[i];
+        }
       }
     }
-    for(Shape shape : shapesToReplaceVerticesIn) {
-      shape.replaceVertex(vertex, this.calculateReplacement());
-    }
+    updateFrontier();
 
-    // Only possibleVwedges that worked with both.
-    this.currentPossibleVwedges = ListUtils.intersection(this.currentPossibleVwedges, vertex.currentPossibleVwedges);
-    if(this.currentPossibleVwedges.size() == 0) {
+    // Only configurations that worked with both.
+    setPossibleConfigurations(this.possibleConfigurations & vertex.possibleConfigurations);
+    if(this.possibleConfigurations == 0) {
       // This means that shapes were merged in a way that is incompatible with
       // filling in more of the pattern.  We can't go on.
-      throw new IllegalArgumentException("This vertex merger made combination that is not allowed");
+      return new Conflict(Conflict.Reason.NO_CONFIGURATION_LEFT, location);
     }
+    return null;
   }
 
   // So it turns out that we might be able to completely avoid merging accidents by
   // always just auto-filling vertices in order of when they were first made.
   // Or something like that.
-  private void autoFillAllTheShapes() {
-    List<Shape> addedShapes;
-    if(dead) {
-      // There's just no point in auto-filling a system that you're no longer a part of.
-      // Some other live vertex will take care of that.
-      return;
-    }
-    do {
-      // Get all of the live vertices connected to this one,
-      // and auto-fill them.
-      PriorityQueue<Vertex> queue = new PriorityQueue<>(getAllLiveNonFullVertices());
-
-      addedShapes = new ArrayList<>();
-      while(queue.size() > 0) {
-        Vertex tempVertex = queue.remove();
-        // This vertex may have been killed or filled within this loop.
-        if(!tempVertex.isDead() && !tempVertex.isFull()) {
-          List<Shape> tempAddedShapes = tempVertex.autoFillShapes();
-          addedShapes.addAll(tempAddedShapes);
-
+  // Only vertices that something actually happened to are in the queue,
+  // so this costs as much as the chain of forced shapes and not the whole tiling.
+  private Conflict autoFillAllTheShapes() {
+    Deque<Vertex> queue = tiling.getAutoFillQueue();
+    while(!queue.isEmpty()) {
+      Vertex vertex = queue.remove();
+      vertex.queuedForAutoFill = false;
+      // This vertex may have been killed or filled since it got queued.
+      if(!vertex.isDead() && !vertex.isFull()) {
+        Conflict conflict = vertex.autoFillShapes();
+        if(conflict != null) {
+          return conflict;
         }
       }
-    } while(addedShapes.size() > 0 && !dead);
+    }
     //dumpToSvgDebug(true, false);
+    return null;
+  }
+
+  // Something changed about this vertex, so it might have some forced shapes now.
+  // Vertices that aren't in the tiling yet get their turn once they are.
+  // Nothing drains the queue unless an autofill attempt is going, so don't bother otherwise.
+  private void queueForAutoFill() {
+    if(!queuedForAutoFill && !isFull() && tiling.getJournal().isRecording() && tiling.getLiveVertices().contains(this)) {
+      queuedForAutoFill = true;
+      tiling.getAutoFillQueue().add(this);
+    }
+  }
+
+  // After a rollback whatever's still queued might not even be in the tiling anymore.
+  private void clearAutoFillQueue() {
+    Deque<Vertex> queue = tiling.getAutoFillQueue();
+    while(!queue.isEmpty()) {
+      queue.remove().queuedForAutoFill = false;
+    }
   }
 
-  private List<Shape> autoFillShapes() {
-    // The obvious thing is to see if there is just one item in currentPossibleVwedges.
+  private Conflict autoFillShapes() {
+    // The obvious thing is to see if there is just one possible configuration.
     // But there's something a little more subtle too.
-    // If all of the currentPossibleVwedges have the same Vwedge in an as-yet-unfilled spot,
+    // If all of the possible configurations have the same Vwedge in an as-yet-unfilled spot,
     // that spot needs to get filled with that VWedge.
+    if(possibleConfigurations == 0) {
+      // There's no way to fill in the rest of this vertex.
+      return new Conflict(Conflict.Reason.NO_CONFIGURATION_LEFT, location);
+    }
+    // Any one of the configurations says what the only candidate for each spot could be,
+    // and then the masks say whether all of the others agree.
+    Vwedge[] anyConfiguration = allVwedgeConfigurations.get(Long.numberOfTrailingZeros(possibleConfigurations));
     Vwedge[] certainVwedges = new Vwedge[WEDGE_COUNT];
-    boolean[] justOneVwedge = new boolean[WEDGE_COUNT];
-    for(int i = 0; i < certainVwedges.length; i++) {
-      certainVwedges[i] = null;
+    for(int i = 0; i < WEDGE_COUNT; i++) {
       // We only care if there isn't already a vwedge here.
-      justOneVwedge[i] = (vwedges[i] == null);
-      if(justOneVwedge[i]) {
-        for(Vwedge[] tempVwedges : currentPossibleVwedges) {
-          if(certainVwedges[i] == null) {
-            certainVwedges[i] = tempVwedges[i];
-          } else if(certainVwedges[i] != tempVwedges[i]) {
-            // This means there are two possibilities for this vwedge,
-            // which means it won't get auto-filled.
-            justOneVwedge[i] = false;
-          }
+      if(vwedges[i] == null) {
+        Vwedge candidate = anyConfiguration[i];
+        if((possibleConfigurations & ~configurationsWithVwedge[i][candidate.ordinal()]) == 0) {
+          certainVwedges[i] = candidate;
         }
       }
     }
 
-    List<Shape> addedShapes = new ArrayList<>();
     Vertex thisOrReplacement;
     for(int i = 0; i < WEDGE_COUNT; i++) {
       thisOrReplacement = calculateReplacement();
       // Need one last check of vwedges[i] there because we may have filled it just now.
-      if(justOneVwedge[i] && vwedges[i] == null) {
+      if(certainVwedges[i] != null && vwedges[i] == null) {
         Vwedge vwedge = certainVwedges[i];
         Shape shape = Shape.makeNew(vwedge.associatedShape);
-        addedShapes.add(shape);
-        thisOrReplacement.addShape(shape, vwedge, i, false);
+        Conflict conflict = thisOrReplacement.placeShape(shape, vwedge, i, false);
+        if(conflict != null) {
+          return conflict;
+        }
       }
     }
-    return addedShapes;
+    return null;
   }
 
   // V is which vertex we are in relation to this Shape.
   public void putShapeInWedges(Shape shape, V v) {
     Orientation orientation = shape.getOrientation();
+    // Whatever configurations are inconsistent with the new wedges are out.
+    long stillPossibleConfigurations = possibleConfigurations;
     for(Vwedge vwedge : Vwedge.getVwedges(v)) {
       int i = orientation.getWedgeLocation(vwedge);
-      wedges[i] = shape;
-      openWedges--;
-      vwedges[i] = vwedge;
+      fillWedge(i, shape, vwedge);
+      stillPossibleConfigurations &= configurationsWithVwedge[i][vwedge.ordinal()];
     }
-    recalculatePossibleVwedges();
+    setPossibleConfigurations(stillPossibleConfigurations);
+    updateFrontier();
   }
 
-  // Start from scratch because we think there are more viable options than are in currentPossibleVwedges.
-  private void completelyRecalculatePossibleVwedges() {
-    currentPossibleVwedges = new ArrayList<>(allVwedgeConfigurations);
-    recalculatePossibleVwedges();
+  // Vertices that haven't been merged into the graph yet are still on their own,
+  // so they'll get their turn in findLocationCopyAndMerge.
+  private void updateFrontier() {
+    tiling.getFrontier().update(this, tiling.getLiveVertices().contains(this));
   }
 
-  // This figures out which of the remaining currentPossibleVwedges
-  // are now inconsistent with the vwedges, and removes them.
-  private void recalculatePossibleVwedges() {
-    for(int i = 0; i < currentPossibleVwedges.size(); i++) {
-      for(int j = 0; j < 10; j++) {
-        if(vwedges[j] != null && vwedges[j] != currentPossibleVwedges.get(i)[j]) {
-          currentPossibleVwedges.remove(i);
-          i--;
-          break;
-        }
-      }
+  // Every wedge change goes through here so that it can be undone.
+  private void fillWedge(int i, Shape shape, Vwedge vwedge) {
+    Shape oldShape = wedges[i];
+    Vwedge oldVwedge = vwedges[i];
+    wedges[i] = shape;
+    vwedges[i] = vwedge;
+    openWedges--;
+    tiling.getJournal().record(() -> {
+      wedges[i] = oldShape;
+      vwedges[i] = oldVwedge;
+      openWedges++;
+      updateFrontier();
+    });
+  }
+
+  private void setParent(Vertex newParent) {
+    Vertex oldParent = parent;
+    parent = newParent;
+    tiling.getJournal().record(() -> parent = oldParent);
+  }
+
+  // Same for the possible configurations.
+  private void setPossibleConfigurations(long configurations) {
+    if(configurations != possibleConfigurations) {
+      long oldConfigurations = possibleConfigurations;
+      possibleConfigurations = configurations;
+      tiling.getJournal().record(() -> possibleConfigurations = oldConfigurations);
+      queueForAutoFill();
     }
   }
 
-  public void setLocation(Point location, Vertex anyLocatedVertex) {
+  public void setLocation(CyclotomicPoint location, Vertex anyLocatedVertex) {
     if(this.location == null) {
       this.location = location;
       if(anyLocatedVertex != null) {
-        this.allTheLiveVertices = anyLocatedVertex.allTheLiveVertices;
-        this.pointSet = anyLocatedVertex.pointSet;
-        this.pointsToVertices = anyLocatedVertex.pointsToVertices;
+        this.tiling = anyLocatedVertex.tiling;
+      } else if(tiling == null) {
+        // The very first vertex of a brand new tiling.
+        tiling = new Tiling();
       }
+      tiling.getJournal().record(() -> this.location = null);
     }
   }
 
-  public Point getLocation() {
+  public CyclotomicPoint getLocation() {
     return location;
   }
 
+  int getPossibleConfigurationCount() {
+    return Long.bitCount(possibleConfigurations);
+  }
+
+  // Bit c is set if configuration c could still go here.
+  long getPossibleConfigurations() {
+    return possibleConfigurations;
+  }
+
+  // Indexed by configuration bit.
+  static List<Vwedge[]> getAllConfigurations() {
+    return Collections.unmodifiableList(allVwedgeConfigurations);
+  }
+
+  int getOpenWedgeCount() {
+    return openWedges;
+  }
+
   public static int normalizeWedgeNumber(int i) {
     // Don't trust any modulus operator interactions with negative numbers.
     while(i < 0) {
@@ -413,10 +510,10 @@ public class Vertex implements Comparable<Vertex> {
     return i % WEDGE_COUNT;
   }
 
-  public List<Point[]> getAllShapePoints() {
+  public List<CyclotomicPoint[]> getAllShapePoints() {
     Set<Shape> visitedShapes = new HashSet<>();
-    List<Point[]> shapePoints = new ArrayList<>();
-    for(Vertex vertex : allTheLiveVertices) {
+    List<CyclotomicPoint[]> shapePoints = new ArrayList<>();
+    for(Vertex vertex : tiling.getLiveVertices()) {
       for(Shape shape : vertex.wedges) {
         if(shape != null && visitedShapes.add(shape)) {
           shapePoints.add(shape.getShapePoints());
@@ -426,28 +523,22 @@ public class Vertex implements Comparable<Vertex> {
     return shapePoints;
   }
 
-  // Sure we could put these in a set.  It would be more elegant.
-  // But it would also be really slow.
-  private List<Shape> getAllShapes() {
-    List<Shape> visitedShapes = new ArrayList<>();
-    for(Vertex vertex : allTheLiveVertices) {
-      visitedShapes.addAll(Arrays.asList(vertex.wedges));
-    }
-    return visitedShapes;
+  public Set<Vertex> getAllLiveNonFullVertices() {
+    return new HashSet<>(tiling.getFrontier().getNonFullVertices());
   }
 
-  public Set<Vertex> getAllLiveNonFullVertices() {
-    Set<Vertex> liveNonFullVertices = new HashSet<>();
-    for(Vertex vertex : allTheLiveVertices) {
-      if(!vertex.isFull()) {
-        liveNonFullVertices.add(vertex);
-      }
-    }
-    return liveNonFullVertices;
+  public Tiling getTiling() {
+    return tiling;
+  }
+
+  // Only for a tiling taking over another one's vertices wholesale.
+  void setTiling(Tiling tiling) {
+    this.tiling = tiling;
   }
 
+  // Read only, since the tiling keeps track of these itself.
   public Set<Vertex> getAllLiveVertices() {
-    return allTheLiveVertices;
+    return Collections.unmodifiableSet(tiling.getLiveVertices());
   }
 
   /*public void dumpToSvgDebug(boolean highlight, boolean verticesToo, Vertex ... extraVertices) {
@@ -458,7 +549,7 @@ public class Vertex implements Comparable<Vertex> {
     File file = new File(filename);
     List<Point> allVertexPoints = new ArrayList<>();
     if(verticesToo) {
-      for(Vertex vertex : allTheLiveVertices) {
+      for(Vertex vertex : tiling.getLiveVertices()) {
         allVertexPoints.add(vertex.getLocation());
       }
     }
@@ -0,0 +1,117 @@
+package net.origamimarie.penrose.generation;
+
+// Finds the vertex at a location in constant time.
+// Locations are exact, so this is just a hash table, but it's one without a per-vertex entry object:
+// open addressing with linear probing over a single array, keyed by the vertices' own locations.
+public class VertexIndex {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // A null means an empty slot.
+  private Vertex[] vertices;
+  private int size;
+
+  public VertexIndex() {
+    vertices = new Vertex[INITIAL_CAPACITY];
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  // The indexed vertex at exactly this point, or null.
+  public Vertex get(CyclotomicPoint point) {
+    int mask = vertices.length - 1;
+    for(int slot = slotFor(point); vertices[slot] != null; slot = (slot + 1) & mask) {
+      if(vertices[slot].getLocation().equals(point)) {
+        return vertices[slot];
+      }
+    }
+    return null;
+  }
+
+  // Keyed by wherever the vertex is right now, so don't move it while it's in here.
+  public void put(Vertex vertex) {
+    if((size + 1) * 2 > vertices.length) {
+      grow();
+    }
+    insert(vertex);
+    size++;
+  }
+
+  // Everything in another index, none of which is in this one already.
+  // Grows once up front instead of checking on every insert.
+  void putAll(VertexIndex other) {
+    int capacity = vertices.length;
+    while((size + other.size) * 2 > capacity) {
+      capacity *= 2;
+    }
+    if(capacity != vertices.length) {
+      resize(capacity);
+    }
+    for(Vertex vertex : other.vertices) {
+      if(vertex != null) {
+        insert(vertex);
+      }
+    }
+    size += other.size;
+  }
+
+  public void remove(Vertex vertex) {
+    int mask = vertices.length - 1;
+    int slot = slotFor(vertex.getLocation());
+    while(vertices[slot] != vertex) {
+      if(vertices[slot] == null) {
+        // Wasn't in here to begin with.
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    vertices[slot] = null;
+    size--;
+
+    // Shift later entries back into the hole, if that's closer to where they wanted to be.
+    // This keeps every probe sequence unbroken without needing tombstones.
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while(vertices[next] != null) {
+      int home = slotFor(vertices[next].getLocation());
+      if(((next - home) & mask) >= ((next - hole) & mask)) {
+        vertices[hole] = vertices[next];
+        vertices[next] = null;
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+  }
+
+  private void insert(Vertex vertex) {
+    int mask = vertices.length - 1;
+    int slot = slotFor(vertex.getLocation());
+    while(vertices[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+    vertices[slot] = vertex;
+  }
+
+  private void grow() {
+    resize(vertices.length * 2);
+  }
+
+  private void resize(int capacity) {
+    Vertex[] oldVertices = vertices;
+    vertices = new Vertex[capacity];
+    for(Vertex vertex : oldVertices) {
+      if(vertex != null) {
+        insert(vertex);
+      }
+    }
+  }
+
+  private int slotFor(CyclotomicPoint point) {
+    // Fibonacci hashing spreads neighboring points all over the table.
+    return (int)((point.hashCode() * 0x9E3779B97F4A7C15L) >>> 32) & (vertices.length - 1);
+  }
+
+}
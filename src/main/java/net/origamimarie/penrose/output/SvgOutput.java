@@ -2,7 +2,9 @@ package net.origamimarie.penrose.output;
 
 import lombok.extern.slf4j.Slf4j;
 import net.origamimarie.penrose.coloring.ColoredShapeGroup;
+import net.origamimarie.penrose.generation.CyclotomicPoint;
 import net.origamimarie.penrose.generation.Point;
+import net.origamimarie.penrose.generation.TileStore;
 
 import java.awt.Color;
 import java.io.BufferedWriter;
@@ -23,7 +25,7 @@ public class SvgOutput {
 
     List<Point[]> allThePointLists = new ArrayList<>(coloredShapeGroups.size());
     for(ColoredShapeGroup group : coloredShapeGroups) {
-      allThePointLists.addAll(group.getShapeGroup().getShapePoints());
+      allThePointLists.addAll(toPointLists(group.getShapeGroup().getShapePoints()));
     }
 
     Point[] minAndMax = new Point[2];
@@ -46,7 +48,7 @@ public class SvgOutput {
       for(int i = 0; i < coloredShapeGroups.size(); i++) {
         ColoredShapeGroup group = coloredShapeGroups.get(i);
         List<Point[]> scaledPointsList = new ArrayList<>();
-        for(Point[] points : group.getShapeGroup().getShapePoints()) {
+        for(Point[] points : toPointLists(group.getShapeGroup().getShapePoints())) {
           Point[] scaled = new Point[points.length];
           scaledPointsList.add(scaled);
           for (int j = 0; j < points.length; j++) {
@@ -68,7 +70,7 @@ public class SvgOutput {
 
     for(int i = 0; i < coloredShapeGroups.size(); i++) {
       ColoredShapeGroup group = coloredShapeGroups.get(i);
-      List<Point[]> pointsList = group.getShapeGroup().getShapePoints();
+      List<Point[]> pointsList = toPointLists(group.getShapeGroup().getShapePoints());
       for(Point[] points : pointsList) {
         Point[] scaled = new Point[points.length];
         for(int j = 0; j < points.length; j++) {
@@ -125,6 +127,51 @@ public class SvgOutput {
     writer.close();
   }
 
+  // Every tile straight out of the store, kites in one color and darts in another.
+  // No shapes, vertices or shape groups involved, which is the point for really big patches.
+  public static void tileStoreToSvgFile(File file, TileStore store, double scaleFactor,
+                                        Color kiteColor, Color dartColor, double opacity) throws IOException {
+    BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for(int vertex = 0; vertex < store.getVertexCount(); vertex++) {
+      minX = Math.min(minX, store.getX(vertex) * scaleFactor);
+      maxX = Math.max(maxX, store.getX(vertex) * scaleFactor);
+      minY = Math.min(minY, store.getY(vertex) * -scaleFactor);
+      maxY = Math.max(maxY, store.getY(vertex) * -scaleFactor);
+    }
+    Point offset = new Point(-minX, -minY);
+
+    appendHeader(writer);
+    appendSvgHeader(writer, new Point(maxX - minX, maxY - minY));
+    Point[] scaled = new Point[4];
+    for(int tile = 0; tile < store.getTileCount(); tile++) {
+      for(int corner = 0; corner < scaled.length; corner++) {
+        int vertex = store.getTileVertex(tile, corner);
+        scaled[corner] = new Point(store.getX(vertex) * scaleFactor, store.getY(vertex) * -scaleFactor);
+      }
+      appendPolygon(writer, scaled, offset, store.isKite(tile) ? kiteColor : dartColor, opacity, false, Color.black);
+    }
+    appendFooter(writer);
+    writer.close();
+  }
+
+  // This is the one place exact shape group locations get turned into doubles.
+  private static List<Point[]> toPointLists(List<CyclotomicPoint[]> exactPointLists) {
+    List<Point[]> pointLists = new ArrayList<>(exactPointLists.size());
+    for(CyclotomicPoint[] exactPoints : exactPointLists) {
+      Point[] points = new Point[exactPoints.length];
+      for(int i = 0; i < exactPoints.length; i++) {
+        points[i] = exactPoints[i] == null ? null : exactPoints[i].toPoint();
+      }
+      pointLists.add(points);
+    }
+    return pointLists;
+  }
+
   private static void appendLinks(Appendable ap, String ... links) throws IOException {
     if(links != null && links.length > 0) {
       for(String link : links) {
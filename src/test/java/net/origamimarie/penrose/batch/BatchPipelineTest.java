@@ -0,0 +1,78 @@
+package net.origamimarie.penrose.batch;
+
+import net.origamimarie.penrose.coloring.ColoringScheme;
+import net.origamimarie.penrose.coloring.ShapeGroup.NeighborsType;
+import net.origamimarie.penrose.coloring.ShapeGroup.ShapeGroupType;
+import net.origamimarie.penrose.generation.Point;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BatchPipelineTest {
+
+  private static JobSpec spec(String name, int size, long seed) throws Exception {
+    File output = File.createTempFile(name, ".svg");
+    output.deleteOnExit();
+    return new JobSpec(name, new Point(0, 0), new Point(size, size), ShapeGroupType.SINGLE_SHAPES,
+            NeighborsType.VERTICES, ColoringScheme.RAINBOW_6, seed, output);
+  }
+
+  @Test
+  public void sameSeedsSamePicturesAsTheBatchRunner() throws Exception {
+    List<JobSpec> specs = new ArrayList<>();
+    List<JobSpec> runnerSpecs = new ArrayList<>();
+    for(int i = 0; i < 6; i++) {
+      specs.add(spec("job" + i, 10, i));
+      runnerSpecs.add(spec("job" + i, 10, i));
+    }
+    // Tiny queues, so stages spend plenty of time waiting on each other.
+    BatchSummary summary = new BatchPipeline(2, 2, 1, 60000, 5).run(specs);
+    BatchSummary runnerSummary = new BatchRunner(2, 60000, 5).run(runnerSpecs);
+    for(int i = 0; i < 6; i++) {
+      JobResult result = summary.getResults().get(i);
+      Assert.assertEquals(specs.get(i), result.spec);
+      Assert.assertEquals(runnerSummary.getResults().get(i).outcome, result.outcome);
+      Assert.assertEquals(runnerSummary.getResults().get(i).attempts, result.attempts);
+      if(result.outcome == JobResult.Outcome.SUCCEEDED) {
+        Assert.assertTrue(Arrays.equals(Files.readAllBytes(specs.get(i).output.toPath()),
+                Files.readAllBytes(runnerSpecs.get(i).output.toPath())));
+      }
+    }
+    Assert.assertTrue(summary.getSucceededCount() > 0);
+  }
+
+  @Test
+  public void slowJobsTimeOutAndTheRestCarryOn() throws Exception {
+    List<JobSpec> specs = Arrays.asList(spec("small", 10, 1), spec("huge", 2000, 1), spec("small", 10, 2));
+    BatchSummary summary = new BatchPipeline(1, 1, 1, 500, 2).run(specs);
+    Assert.assertEquals(JobResult.Outcome.SUCCEEDED, summary.getResults().get(0).outcome);
+    Assert.assertEquals(JobResult.Outcome.TIMED_OUT, summary.getResults().get(1).outcome);
+    Assert.assertEquals(2, summary.getResults().get(1).attempts);
+    Assert.assertEquals(JobResult.Outcome.SUCCEEDED, summary.getResults().get(2).outcome);
+  }
+
+  // An Error in a stage still has to give the job its result and let the stages after it finish,
+  // or run() never comes back.
+  @Test(timeout = 60000)
+  public void errorsFailTheJobAndTheRunStillEnds() throws Exception {
+    JobSpec good = spec("good", 10, 1);
+    JobSpec bad = new JobSpec("bad", good.low, good.high, good.shapeGroupType, good.neighborsType,
+            good.coloringScheme, 1, new File(good.output.getPath() + ".bad") {
+      @Override
+      public String getPath() {
+        throw new OutOfMemoryError("Pretend the picture was too big");
+      }
+    });
+    BatchSummary summary = new BatchPipeline(1, 1, 1, 60000, 3).run(Arrays.asList(bad, good));
+    Assert.assertEquals(JobResult.Outcome.FAILED, summary.getResults().get(0).outcome);
+    Assert.assertEquals(1, summary.getResults().get(0).attempts);
+    Assert.assertTrue(summary.getResults().get(0).lastFailure instanceof OutOfMemoryError);
+    Assert.assertEquals(JobResult.Outcome.SUCCEEDED, summary.getResults().get(1).outcome);
+  }
+
+}
@@ -0,0 +1,55 @@
+package net.origamimarie.penrose.batch;
+
+import net.origamimarie.penrose.coloring.ColoringScheme;
+import net.origamimarie.penrose.coloring.ShapeGroup.NeighborsType;
+import net.origamimarie.penrose.coloring.ShapeGroup.ShapeGroupType;
+import net.origamimarie.penrose.generation.Point;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BatchRunnerTest {
+
+  private static JobSpec spec(String name, int size, long seed) throws Exception {
+    File output = File.createTempFile(name, ".svg");
+    output.deleteOnExit();
+    return new JobSpec(name, new Point(0, 0), new Point(size, size), ShapeGroupType.SINGLE_SHAPES,
+            NeighborsType.VERTICES, ColoringScheme.RAINBOW_6, seed, output);
+  }
+
+  @Test
+  public void sameSeedsSamePictures() throws Exception {
+    List<JobSpec> specs = new ArrayList<>();
+    for(int i = 0; i < 4; i++) {
+      specs.add(spec("job" + i, 10, i % 2));
+    }
+    BatchSummary summary = new BatchRunner(2, 60000, 3).run(specs);
+    Assert.assertEquals(4, summary.getSucceededCount());
+    Assert.assertEquals(0.0, summary.getJobFailureRate(), 0.0);
+    for(int i = 0; i < 4; i++) {
+      Assert.assertEquals(specs.get(i), summary.getResults().get(i).spec);
+    }
+    Assert.assertTrue(Arrays.equals(Files.readAllBytes(specs.get(0).output.toPath()),
+            Files.readAllBytes(specs.get(2).output.toPath())));
+    Assert.assertTrue(Arrays.equals(Files.readAllBytes(specs.get(1).output.toPath()),
+            Files.readAllBytes(specs.get(3).output.toPath())));
+  }
+
+  @Test
+  public void slowJobsTimeOutAndTheRestCarryOn() throws Exception {
+    List<JobSpec> specs = Arrays.asList(spec("huge", 2000, 1), spec("small", 10, 1));
+    BatchRunner runner = new BatchRunner(1, 500, 2);
+    BatchSummary summary = runner.run(specs);
+    Assert.assertEquals(JobResult.Outcome.TIMED_OUT, summary.getResults().get(0).outcome);
+    Assert.assertEquals(2, summary.getResults().get(0).attempts);
+    // Same thread, so if the interrupt leaked this one would fall over.
+    Assert.assertEquals(JobResult.Outcome.SUCCEEDED, summary.getResults().get(1).outcome);
+    Assert.assertEquals(0.5, summary.getJobFailureRate(), 0.0);
+  }
+
+}
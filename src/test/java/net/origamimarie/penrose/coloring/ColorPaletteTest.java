@@ -0,0 +1,45 @@
+package net.origamimarie.penrose.coloring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class ColorPaletteTest {
+
+  @Test
+  public void compiledSchemesFollowTheColorRules() {
+    for(ColoringScheme scheme : ColoringScheme.values()) {
+      List<ColorForPalette> colors = scheme.colorsForPalette;
+      for(int neighbor = 0; neighbor < colors.size(); neighbor++) {
+        ColorPalette palette = new ColorPalette(scheme, new SplittableRandom(1));
+        long removed = palette.informOfNewNeighbor(neighbor);
+        List<Color> usable = palette.getUsableColors();
+        for(int color = 0; color < colors.size(); color++) {
+          boolean acceptable = colors.get(color).acceptableNeighbor(colors.get(neighbor).color);
+          Assert.assertEquals(scheme + " " + color + " next to " + neighbor, acceptable, usable.contains(colors.get(color).color));
+          Assert.assertEquals(acceptable, (removed & (1L << color)) == 0);
+        }
+        Assert.assertEquals(usable.size(), palette.remainingColorCount());
+        palette.addBackColors(removed);
+        Assert.assertEquals(colors.size(), palette.remainingColorCount());
+      }
+    }
+  }
+
+  @Test
+  public void usedColorsComeBackOnReset() {
+    ColorPalette palette = new ColorPalette(ColoringScheme.RAINBOW_6, new SplittableRandom(1));
+    palette.dumpAllButOne();
+    Assert.assertEquals(1, palette.remainingColorCount());
+    int color = palette.useRandomColor();
+    Assert.assertEquals(ColoringScheme.RAINBOW_6.justTheColors.get(color), palette.getCurrentColor());
+    Assert.assertEquals(0, palette.remainingColorCount());
+    palette.resetAttemptedColors();
+    Assert.assertNull(palette.getCurrentColor());
+    Assert.assertEquals(6, palette.remainingColorCount());
+  }
+
+}
@@ -0,0 +1,105 @@
+package net.origamimarie.penrose.coloring;
+
+import net.origamimarie.penrose.generation.Point;
+import net.origamimarie.penrose.generation.Tiling;
+import net.origamimarie.penrose.generation.TilingGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ColoringEngineTest {
+
+  @Test
+  public void sameSeedsSameColors() {
+    Assert.assertEquals(colorsFor(5, 3), colorsFor(5, 3));
+  }
+
+  // The chronological solver thrashes on this one most of the time.
+  @Test
+  public void backjumpingColorsAHardScheme() {
+    colorAHardScheme(ColoringSolver.DSATUR_BACKJUMPING);
+  }
+
+  @Test
+  public void arcConsistencyColorsAHardScheme() {
+    colorAHardScheme(ColoringSolver.DSATUR_ARC_CONSISTENT);
+  }
+
+  @Test
+  public void portfolioColorsAHardScheme() {
+    colorAHardScheme(ColoringSolver.PORTFOLIO);
+  }
+
+  // The same pool colors one tiling after another, and it's still up afterwards.
+  @Test
+  public void portfolioReusesTheExecutorItIsGiven() {
+    Point low = new Point(0, 0);
+    Point high = new Point(10, 10);
+    TilingGenerator generator = new TilingGenerator(low, high, new Tiling(2));
+    Collection<ShapeGroup> shapeGroups = ShapeGroup.generateShapeGroups(generator.getAllVertices(),
+            ShapeGroup.ShapeGroupType.SINGLE_SHAPES, ShapeGroup.NeighborsType.EDGES, low, high);
+    AtomicInteger threadsMade = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+      threadsMade.incrementAndGet();
+      return new Thread(runnable);
+    });
+    try {
+      for(int seed = 0; seed < 3; seed++) {
+        ColoringEngine engine = new ColoringEngine(seed);
+        engine.setSolver(ColoringSolver.PORTFOLIO);
+        engine.setPortfolioWorkers(2);
+        engine.setPortfolioExecutor(executor);
+        Assert.assertEquals(shapeGroups.size(), engine.colorShapeGroups(shapeGroups, ColoringScheme.RAINBOW_6).size());
+      }
+      Assert.assertFalse(executor.isShutdown());
+      Assert.assertTrue(threadsMade.get() <= 2);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // Every pair of neighbors has to be fine with each other, one way or the other.
+  private void colorAHardScheme(ColoringSolver solver) {
+    Point low = new Point(0, 0);
+    Point high = new Point(30, 30);
+    TilingGenerator generator = new TilingGenerator(low, high, new Tiling(1));
+    Collection<ShapeGroup> shapeGroups = ShapeGroup.generateShapeGroups(generator.getAllVertices(),
+            ShapeGroup.ShapeGroupType.SINGLE_SHAPES, ShapeGroup.NeighborsType.EDGES, low, high);
+    ColoringScheme scheme = ColoringScheme.RAINBOW_32_FUZZY_ALTERNATING;
+    ColoringEngine engine = new ColoringEngine(4);
+    engine.setSolver(solver);
+    engine.setPortfolioWorkers(2);
+    for(ColoredShapeGroup group : engine.colorShapeGroups(shapeGroups, scheme)) {
+      ColorForPalette color = scheme.colorsForPalette.get(scheme.justTheColors.indexOf(group.getColor()));
+      for(ShapeGroup neighbor : group.getShapeGroup().getNeighbors()) {
+        Color neighborColor = neighbor.getColoredShapeGroup().getColor();
+        ColorForPalette neighborPaletteColor = scheme.colorsForPalette.get(scheme.justTheColors.indexOf(neighborColor));
+        Assert.assertTrue(color.acceptableNeighbor(neighborColor) || neighborPaletteColor.acceptableNeighbor(group.getColor()));
+      }
+    }
+  }
+
+  // Group outlines and colors, in whatever order the groups come out in.
+  private List<String> colorsFor(long tilingSeed, long coloringSeed) {
+    Point low = new Point(0, 0);
+    Point high = new Point(10, 10);
+    TilingGenerator generator = new TilingGenerator(low, high, new Tiling(tilingSeed));
+    Collection<ShapeGroup> shapeGroups = ShapeGroup.generateShapeGroups(generator.getAllVertices(),
+            ShapeGroup.ShapeGroupType.SINGLE_SHAPES, ShapeGroup.NeighborsType.VERTICES, low, high);
+    List<String> colors = new ArrayList<>();
+    for(ColoredShapeGroup group : new ColoringEngine(coloringSeed).colorShapeGroups(shapeGroups, ColoringScheme.RAINBOW_6)) {
+      Color color = group.getColor();
+      colors.add(Arrays.toString(group.getShapeGroup().getShapePoints().get(0)) + " " + color);
+    }
+    return colors;
+  }
+
+}
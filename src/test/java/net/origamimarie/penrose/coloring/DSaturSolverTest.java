@@ -0,0 +1,16 @@
+package net.origamimarie.penrose.coloring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DSaturSolverTest {
+
+  @Test
+  public void lubySequence() {
+    long[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+    for(int run = 1; run <= expected.length; run++) {
+      Assert.assertEquals("run " + run, expected[run - 1], DSaturSolver.luby(run));
+    }
+  }
+
+}
@@ -0,0 +1,66 @@
+package net.origamimarie.penrose.coloring;
+
+import net.origamimarie.penrose.generation.Point;
+import net.origamimarie.penrose.generation.Tiling;
+import net.origamimarie.penrose.generation.TilingGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class GroupQueueTest {
+
+  @Test
+  public void updatesKeepTheQueueInOrder() {
+    Point low = new Point(0, 0);
+    Point high = new Point(6, 6);
+    TilingGenerator generator = new TilingGenerator(low, high, new Tiling(1));
+    List<ColoredShapeGroup> groups = new ArrayList<>();
+    SplittableRandom random = new SplittableRandom(2);
+    for(ShapeGroup shapeGroup : ShapeGroup.generateShapeGroups(generator.getAllVertices(),
+            ShapeGroup.ShapeGroupType.SINGLE_SHAPES, ShapeGroup.NeighborsType.VERTICES, low, high)) {
+      groups.add(new ColoredShapeGroup(shapeGroup, new ColorPalette(ColoringScheme.RAINBOW_6, random), groups.size()));
+    }
+    GroupQueue queue = new GroupQueue(groups.size());
+    for(ColoredShapeGroup group : groups) {
+      group.setCachedNullNeighborRatio(random.nextDouble());
+      queue.update(group);
+    }
+    // Shuffle priorities around, take some out, and put some back.
+    for(int i = 0; i < 500; i++) {
+      ColoredShapeGroup group = groups.get(random.nextInt(groups.size()));
+      switch(random.nextInt(3)) {
+        case 0:
+          group.setCachedNullNeighborRatio(random.nextDouble());
+          group.setIslandQueueJumpPriority(random.nextInt(10) == 0);
+          queue.update(group);
+          break;
+        case 1:
+          queue.remove(group);
+          Assert.assertFalse(queue.contains(group));
+          break;
+        default:
+          queue.update(group);
+          Assert.assertTrue(queue.contains(group));
+      }
+    }
+
+    int expectedSize = 0;
+    for(ColoredShapeGroup group : groups) {
+      expectedSize += queue.contains(group) ? 1 : 0;
+    }
+    Assert.assertEquals(expectedSize, queue.size());
+    ColoredShapeGroup previous = null;
+    while(queue.size() > 0) {
+      ColoredShapeGroup next = queue.poll();
+      if(previous != null) {
+        Assert.assertTrue(previous.compareTo(next) <= 0);
+      }
+      previous = next;
+    }
+    Assert.assertNull(queue.peek());
+  }
+
+}
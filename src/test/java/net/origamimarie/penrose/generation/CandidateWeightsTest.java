@@ -0,0 +1,85 @@
+package net.origamimarie.penrose.generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class CandidateWeightsTest {
+
+  @Test
+  public void rollbacksPushChoicesAway() {
+    CandidateWeights weights = new CandidateWeights();
+    for(int i = 0; i < 50; i++) {
+      weights.record(3, 4, true);
+      weights.record(5, 4, false);
+    }
+    Assert.assertTrue(weights.getWeight(3, 4) < weights.getWeight(5, 4));
+    // Other contexts haven't learned anything.
+    Assert.assertEquals(0.5, weights.getWeight(3, 7), 0.0);
+
+    SplittableRandom random = new SplittableRandom(1);
+    long mask = (1L << 3) | (1L << 5);
+    int picksOfThree = 0;
+    for(int i = 0; i < 1000; i++) {
+      if(weights.choose(mask, 4, random) == 3) {
+        picksOfThree++;
+      }
+    }
+    Assert.assertTrue(picksOfThree < 100);
+  }
+
+  @Test
+  public void saveAndLoadRoundTrip() throws Exception {
+    CandidateWeights weights = new CandidateWeights();
+    weights.record(12, 9, true);
+    weights.record(12, 9, false);
+    weights.record(40, 2, false);
+    File file = File.createTempFile("weights", ".txt");
+    file.deleteOnExit();
+    weights.save(file);
+
+    CandidateWeights loaded = CandidateWeights.load(file);
+    Assert.assertEquals(weights.getWeight(12, 9), loaded.getWeight(12, 9), 0.0);
+    Assert.assertEquals(weights.getWeight(40, 2), loaded.getWeight(40, 2), 0.0);
+    Assert.assertEquals(0.5, loaded.getWeight(0, 0), 0.0);
+  }
+
+  @Test(expected = IOException.class)
+  public void corruptFileIsAnIOException() throws Exception {
+    File file = File.createTempFile("weights", ".txt");
+    file.deleteOnExit();
+    try(FileWriter writer = new FileWriter(file)) {
+      writer.write("12 9 lots 1\n");
+    }
+    CandidateWeights.load(file);
+  }
+
+  // Several tilings on several threads, all counting into the same weights.
+  @Test
+  public void sharedWeightsKeepEveryCount() throws Exception {
+    CandidateWeights weights = new CandidateWeights();
+    List<Thread> threads = new ArrayList<>();
+    for(int t = 0; t < 4; t++) {
+      threads.add(new Thread(() -> {
+        for(int i = 0; i < 10000; i++) {
+          weights.record(7, 3, i % 4 == 0);
+        }
+      }));
+    }
+    for(Thread thread : threads) {
+      thread.start();
+    }
+    for(Thread thread : threads) {
+      thread.join();
+    }
+    // 40000 attempts and 10000 rollbacks.
+    Assert.assertEquals(30001.0 / 40002.0, weights.getWeight(7, 3), 0.0);
+  }
+
+}
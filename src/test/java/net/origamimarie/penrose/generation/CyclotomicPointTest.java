@@ -0,0 +1,46 @@
+package net.origamimarie.penrose.generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CyclotomicPointTest {
+
+  private static final double DELTA = 0.000000001;
+
+  @Test
+  public void unitsPointTheRightWay() {
+    for(int k = 0; k < Vertex.WEDGE_COUNT; k++) {
+      CyclotomicPoint unit = CyclotomicPoint.unit(k);
+      Assert.assertEquals(Math.cos(Math.PI * 0.2 * k), unit.getX(), DELTA);
+      Assert.assertEquals(Math.sin(Math.PI * 0.2 * k), unit.getY(), DELTA);
+    }
+    Assert.assertEquals(CyclotomicPoint.ONE.times(-1), CyclotomicPoint.unit(5));
+    Assert.assertEquals(CyclotomicPoint.unit(3), CyclotomicPoint.unit(-7));
+  }
+
+  @Test
+  public void goldenRatioIsExact() {
+    Assert.assertEquals((1.0 + Math.sqrt(5.0)) / 2.0, CyclotomicPoint.PHI.getX(), DELTA);
+    Assert.assertEquals(0.0, CyclotomicPoint.PHI.getY(), DELTA);
+    Assert.assertEquals(CyclotomicPoint.ONE, CyclotomicPoint.PHI.times(CyclotomicPoint.INVERSE_PHI));
+    Assert.assertEquals(CyclotomicPoint.INVERSE_PHI_SQUARED,
+            CyclotomicPoint.INVERSE_PHI.times(CyclotomicPoint.INVERSE_PHI));
+    // phi^2 = phi + 1
+    Assert.assertEquals(CyclotomicPoint.PHI.plus(CyclotomicPoint.ONE), CyclotomicPoint.PHI.times(CyclotomicPoint.PHI));
+  }
+
+  @Test
+  public void goingAroundInCirclesComesBackExactly() {
+    CyclotomicPoint start = new CyclotomicPoint(3, -1, 4, 1);
+    CyclotomicPoint point = start;
+    for(int i = 0; i < 1000; i++) {
+      point = point.plus(CyclotomicPoint.unit(i));
+    }
+    for(int i = 0; i < 1000; i++) {
+      point = point.minus(CyclotomicPoint.unit(i));
+    }
+    Assert.assertEquals(start, point);
+    Assert.assertEquals(start.hashCode(), point.hashCode());
+  }
+
+}
@@ -0,0 +1,35 @@
+package net.origamimarie.penrose.generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeflationGeneratorTest {
+
+  @Test
+  public void interiorIsCompletelyTiled() {
+    Point low = new Point(-3, 2);
+    Point high = new Point(12, 9);
+    DeflationGenerator generator = new DeflationGenerator(low, high);
+
+    int interiorVertices = 0;
+    for(Vertex vertex : generator.getAllVertices()) {
+      CyclotomicPoint location = vertex.getLocation();
+      // Anything within a tile's length of the edge might legitimately be missing neighbors.
+      if(location.isGreaterThanOrEqual(low.plus(new Point(1, 1))) &&
+              location.isLessThanOrEqual(high.minus(new Point(1, 1)))) {
+        interiorVertices++;
+        Assert.assertTrue("Hole in the tiling at " + location, vertex.isFull());
+      }
+    }
+    Assert.assertTrue(interiorVertices > 50);
+  }
+
+  // Low and high swapped, so no unit-sized tile can touch it.
+  @Test
+  public void emptyRegionHasNoTiles() {
+    DeflationGenerator generator = new DeflationGenerator(new Point(5, 5), new Point(0, 0));
+    Assert.assertTrue(generator.getAllVertices().isEmpty());
+    Assert.assertTrue(generator.getAllPointLists().isEmpty());
+  }
+
+}
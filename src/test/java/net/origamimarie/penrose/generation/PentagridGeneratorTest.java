@@ -0,0 +1,118 @@
+package net.origamimarie.penrose.generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PentagridGeneratorTest {
+
+  @Test
+  public void interiorIsCompletelyTiled() {
+    Point low = new Point(40, -25);
+    Point high = new Point(55, -10);
+    PentagridGenerator generator = new PentagridGenerator(42L);
+
+    int interiorVertices = 0;
+    for(Vertex vertex : generator.generateVertices(low, high, false)) {
+      CyclotomicPoint location = vertex.getLocation();
+      if(location.isGreaterThanOrEqual(low.plus(new Point(1, 1))) &&
+              location.isLessThanOrEqual(high.minus(new Point(1, 1)))) {
+        interiorVertices++;
+        Assert.assertTrue("Hole in the tiling at " + location, vertex.isFull());
+      }
+    }
+    Assert.assertTrue(interiorVertices > 50);
+  }
+
+  @Test
+  public void parallelMatchesSerial() {
+    PentagridGenerator generator = new PentagridGenerator(7L);
+    Point low = new Point(-10, -10);
+    Point high = new Point(10, 10);
+    List<Tile> serial = generator.getTiles(low, high);
+    List<Tile> parallel = generator.getTilesInParallel(low, high);
+    Assert.assertEquals(serial.size(), parallel.size());
+    for(int i = 0; i < serial.size(); i++) {
+      Assert.assertEquals(serial.get(i), parallel.get(i));
+    }
+  }
+
+  @Test
+  public void tileLookupAgreesWithWindow() {
+    PentagridGenerator generator = new PentagridGenerator(3L);
+    Point point = new Point(1000.3, -777.7);
+    Tile tile = generator.getTileContaining(point);
+    Assert.assertTrue(tile.contains(point));
+    Assert.assertTrue(generator.getTiles(new Point(995, -782), new Point(1005, -772)).contains(tile));
+  }
+
+  @Test
+  public void stripsSewUpIntoTheSameGraph() {
+    PentagridGenerator generator = new PentagridGenerator(11L);
+    Point low = new Point(-20, -8);
+    Point high = new Point(20, 8);
+    Map<CyclotomicPoint, List<Vwedge>> serial = new HashMap<>();
+    for(Vertex vertex : generator.generateVertices(low, high, false)) {
+      serial.put(vertex.getLocation(), Arrays.asList(vertex.getVwedges()));
+    }
+    Set<Vertex> sewn = generator.generateVerticesInStrips(low, high, 5);
+    Assert.assertEquals(serial.size(), sewn.size());
+    for(Vertex vertex : sewn) {
+      // Seam duplicates got eaten, and eaten vertices don't stick around.
+      Assert.assertFalse(vertex.isDead());
+      Assert.assertEquals(serial.get(vertex.getLocation()), Arrays.asList(vertex.getVwedges()));
+      for(Shape shape : vertex.getWedges()) {
+        if(shape != null) {
+          Assert.assertTrue(sewn.containsAll(shape.getVertices()));
+        }
+      }
+    }
+  }
+
+  // Sewn strips are one graph again, so any vertex's tiling has all of them, and can find all of them.
+  @Test
+  public void sewnStripsShareOneTiling() {
+    PentagridGenerator generator = new PentagridGenerator(13L);
+    Set<Vertex> sewn = generator.generateVerticesInStrips(new Point(-20, -8), new Point(20, 8), 4);
+    Tiling tiling = sewn.iterator().next().getTiling();
+    Assert.assertEquals(sewn, tiling.getLiveVertices());
+    for(Vertex vertex : sewn) {
+      Assert.assertSame(tiling, vertex.getTiling());
+      Assert.assertSame(vertex, tiling.getVertexIndex().get(vertex.getLocation()));
+    }
+    Assert.assertEquals(sewn.size(), tiling.getVertexIndex().size());
+  }
+
+  // Far more strips than fit get cut down to ones wide enough to sew, so it comes out the same as one piece.
+  @Test
+  public void tooManyStripsStillSewUp() {
+    PentagridGenerator generator = new PentagridGenerator(17L);
+    Point low = new Point(-10, -5);
+    Point high = new Point(10, 5);
+    Set<CyclotomicPoint> serial = new HashSet<>();
+    for(Vertex vertex : generator.generateVertices(low, high, false)) {
+      serial.add(vertex.getLocation());
+    }
+    Set<Vertex> sewn = generator.generateVerticesInStrips(low, high, 100);
+    // Same count too, so no spot got left with two vertices on it.
+    Assert.assertEquals(serial.size(), sewn.size());
+    for(Vertex vertex : sewn) {
+      Assert.assertTrue(serial.contains(vertex.getLocation()));
+    }
+  }
+
+  // Low and high swapped, so nothing can touch it.
+  @Test
+  public void emptyRegionHasNoVertices() {
+    PentagridGenerator generator = new PentagridGenerator(5L);
+    Assert.assertTrue(generator.generateVertices(new Point(5, 5), new Point(0, 0), false).isEmpty());
+    Assert.assertTrue(generator.generateVertices(new Point(5, 5), new Point(0, 0), true).isEmpty());
+  }
+
+}
@@ -0,0 +1,60 @@
+package net.origamimarie.penrose.generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class TileStoreTest {
+
+  @Test
+  public void storeMatchesTheVertexGraph() {
+    Point low = new Point(-8, -8);
+    Point high = new Point(8, 8);
+    PentagridGenerator generator = new PentagridGenerator(42L);
+    Set<Vertex> vertices = generator.generateVertices(low, high, false);
+    TileStore store = generator.generateTileStore(low, high, false);
+    Assert.assertEquals(vertices.size(), store.getVertexCount());
+
+    Map<CyclotomicPoint, Integer> storeVertices = new HashMap<>();
+    for(int vertex = 0; vertex < store.getVertexCount(); vertex++) {
+      storeVertices.put(store.getLocation(vertex), vertex);
+    }
+    for(Vertex vertex : vertices) {
+      int storeVertex = storeVertices.get(vertex.getLocation());
+      Vwedge[] vwedges = vertex.getVwedges();
+      for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
+        Assert.assertEquals(vwedges[i], store.getVwedge(storeVertex, i));
+        Assert.assertEquals(vwedges[i] == null, store.getWedgeTile(storeVertex, i) == TileStore.NO_TILE);
+      }
+    }
+  }
+
+  @Test
+  public void duplicateTilesAreSkipped() {
+    Tile tile = new Tile(true, CyclotomicPoint.ONE, 3);
+    TileStore store = TileStore.fromTiles(Arrays.asList(tile, tile, new Tile(true, CyclotomicPoint.ONE, 3)));
+    Assert.assertEquals(1, store.getTileCount());
+    Assert.assertEquals(4, store.getVertexCount());
+    Assert.assertTrue(store.isKite(0));
+    Assert.assertEquals(3, store.getOrientation(0));
+    Assert.assertEquals(CyclotomicPoint.ONE, store.getLocation(store.getTileVertex(0, 0)));
+  }
+
+  // 18 bytes a tile and 66 a vertex, and there's about one vertex per tile, plus a few extra around the edge.
+  @Test
+  public void aboutEightyFourBytesPerTile() {
+    TileStore store = new PentagridGenerator(42L).generateTileStore(new Point(-30, -30), new Point(30, 30), false);
+    Assert.assertEquals(18L * store.getTileCount() + 66L * store.getVertexCount(), store.getByteCount());
+    double bytesPerTile = (double)store.getByteCount() / store.getTileCount();
+    Assert.assertTrue("Got " + bytesPerTile, bytesPerTile >= 84.0 && bytesPerTile < 87.0);
+
+    // One lone kite has all four of its vertices to itself.
+    TileStore kite = TileStore.fromTiles(Arrays.asList(new Tile(true, CyclotomicPoint.ONE, 3)));
+    Assert.assertEquals(18 + 4 * 66, kite.getByteCount());
+  }
+
+}
@@ -0,0 +1,84 @@
+package net.origamimarie.penrose.generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+public class TilingGeneratorTest {
+
+  @Test
+  public void frontierMatchesTheVertices() throws Exception {
+    Point low = new Point(0, 0);
+    Point high = new Point(12, 12);
+    TilingGenerator generator = new TilingGenerator(low, high, new Tiling(42));
+    Set<Vertex> nonFullVertices = new HashSet<>();
+    for(Vertex vertex : generator.getAllVertices()) {
+      if(!vertex.isFull()) {
+        nonFullVertices.add(vertex);
+        // Everything in the rectangle should be finished.
+        Assert.assertFalse(vertex.getLocation().isGreaterThanOrEqual(low) && vertex.getLocation().isLessThanOrEqual(high));
+      }
+    }
+    Assert.assertEquals(nonFullVertices, generator.liveVertex.getAllLiveNonFullVertices());
+    Assert.assertTrue(generator.liveVertex.getTiling().getFrontier().isRegionFinished());
+  }
+
+  @Test
+  public void everyStrategyFinishesTheRegion() {
+    Point low = new Point(0, 0);
+    Point high = new Point(8, 8);
+    for(FrontierStrategy strategy : FrontierStrategy.values()) {
+      Tiling tiling = new Tiling(42);
+      new TilingGenerator(low, high, tiling, strategy);
+      Assert.assertTrue(strategy.name(), tiling.getFrontier().isRegionFinished());
+      Assert.assertTrue(strategy.name(), tiling.getAttemptCount() > 0);
+      Assert.assertTrue(strategy.name(), tiling.getRollbackRate() >= 0.0 && tiling.getRollbackRate() < 1.0);
+    }
+  }
+
+  // Whatever slot and configuration a strategy comes up with, the slot is open and the configuration still fits.
+  @Test
+  public void everyStrategyPicksAnOpenSlotAndAPossibleConfiguration() {
+    Vertex origin = new Vertex();
+    origin.setLocation(CyclotomicPoint.ORIGIN, null);
+    Assert.assertTrue(origin.addShape(new Kite(), Vwedge.K0, 0, false));
+    Assert.assertTrue(origin.addShape(new Kite(), Vwedge.K0, 2, false));
+    SplittableRandom random = new SplittableRandom(3);
+    for(FrontierStrategy strategy : FrontierStrategy.values()) {
+      for(int i = 0; i < 20; i++) {
+        FrontierStrategy.Candidate candidate = strategy.chooseCandidate(origin, random, new CandidateWeights());
+        Assert.assertNull(strategy.name(), origin.getWedge(candidate.slot));
+        Assert.assertNotEquals(strategy.name(), 0, origin.getPossibleConfigurations() & (1L << candidate.configuration));
+      }
+    }
+  }
+
+  @Test
+  public void tileStreamHasEveryTileOnce() {
+    Point low = new Point(0, 0);
+    Point high = new Point(20, 20);
+    TilingGenerator generator = new TilingGenerator(low, high, new Tiling(7));
+    TileStore store = TileStore.fromVertices(generator.getAllVertices());
+    Set<Tile> storeTiles = new HashSet<>();
+    for(int tile = 0; tile < store.getTileCount(); tile++) {
+      storeTiles.add(new Tile(store.isKite(tile), store.getLocation(store.getTileVertex(tile, 0)), store.getOrientation(tile)));
+    }
+
+    List<Tile> tiles = generator.tiles().collect(Collectors.toList());
+    Assert.assertEquals(store.getTileCount(), tiles.size());
+    Assert.assertEquals(storeTiles, new HashSet<>(tiles));
+    Assert.assertEquals(tiles, generator.tiles().parallel().collect(Collectors.toList()));
+
+    Point regionLow = new Point(5, 5);
+    Point regionHigh = new Point(9, 12);
+    Set<Tile> inRegion = tiles.stream().filter(tile -> tile.touches(regionLow, regionHigh)).collect(Collectors.toSet());
+    Assert.assertFalse(inRegion.isEmpty());
+    Assert.assertEquals(inRegion, generator.tiles(regionLow, regionHigh).parallel().collect(Collectors.toSet()));
+  }
+
+}
@@ -0,0 +1,195 @@
+package net.origamimarie.penrose.generation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class VertexTest {
+
+  @Test
+  public void rollbackPutsEverythingBack() {
+    Vertex origin = new Vertex();
+    origin.setLocation(CyclotomicPoint.ORIGIN, null);
+    origin.addShape(new Kite(), Vwedge.K0, 0, true);
+    Set<Vertex> liveVertices = new HashSet<>(origin.getAllLiveVertices());
+    Map<Vertex, List<Shape>> wedges = new HashMap<>();
+    for(Vertex vertex : liveVertices) {
+      wedges.put(vertex, Arrays.asList(vertex.getWedges()));
+    }
+    Set<Vertex> nonFullVertices = origin.getAllLiveNonFullVertices();
+
+    Journal journal = origin.getTiling().getJournal();
+    int mark = journal.begin();
+    origin.addShape(new Kite(), Vwedge.K0, 2, false);
+    Assert.assertNotEquals(liveVertices, origin.getAllLiveVertices());
+    journal.rollback(mark);
+
+    Assert.assertEquals(liveVertices, origin.getAllLiveVertices());
+    Assert.assertEquals(nonFullVertices, origin.getAllLiveNonFullVertices());
+    for(Vertex vertex : liveVertices) {
+      Assert.assertFalse(vertex.isDead());
+      Assert.assertEquals(wedges.get(vertex), Arrays.asList(vertex.getWedges()));
+    }
+  }
+
+  // A live vertex on the frontier gets eaten by one already at the same spot, like when strips get sewn together.
+  // Rolling that back has to bring it back to life before it asks to rejoin the frontier.
+  @Test
+  public void rolledBackMergeRejoinsTheFrontier() {
+    Tiling tiling = new Tiling(1);
+    Vertex kept = new Vertex(tiling);
+    kept.setLocation(CyclotomicPoint.ORIGIN, null);
+    Assert.assertNull(kept.joinTiling(tiling));
+    Vertex eaten = new Vertex(tiling);
+    eaten.setLocation(CyclotomicPoint.ORIGIN, kept);
+    tiling.getLiveVertices().add(eaten);
+    tiling.getFrontier().update(eaten, true);
+
+    Journal journal = tiling.getJournal();
+    int mark = journal.begin();
+    Assert.assertNull(eaten.joinTiling(tiling));
+    Assert.assertTrue(eaten.isDead());
+    Assert.assertFalse(tiling.getFrontier().getNonFullVertices().contains(eaten));
+    journal.rollback(mark);
+
+    Assert.assertFalse(eaten.isDead());
+    Assert.assertTrue(tiling.getLiveVertices().contains(eaten));
+    Assert.assertTrue(tiling.getFrontier().getNonFullVertices().contains(eaten));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void journalAttemptsFinishInnermostFirst() {
+    Journal journal = new Journal();
+    int outer = journal.begin();
+    journal.record(() -> {});
+    journal.begin();
+    journal.commit(outer);
+  }
+
+  // The mask should hold exactly the configurations that agree with every wedge filled so far.
+  @Test
+  public void placementNarrowsConfigurationsAndRollbackRestoresThem() {
+    Vertex origin = new Vertex();
+    origin.setLocation(CyclotomicPoint.ORIGIN, null);
+    long everything = origin.getPossibleConfigurations();
+    Assert.assertEquals(Vertex.getAllConfigurations().size(), Long.bitCount(everything));
+
+    Journal journal = origin.getTiling().getJournal();
+    int mark = journal.begin();
+    Assert.assertNull(origin.placeShape(new Kite(), Vwedge.K0, 0, false));
+    long narrowed = origin.getPossibleConfigurations();
+    Assert.assertNotEquals(everything, narrowed);
+    Vwedge[] filled = origin.getVwedges();
+    for(int c = 0; c < Vertex.getAllConfigurations().size(); c++) {
+      boolean agrees = true;
+      for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
+        if(filled[i] != null && filled[i] != Vertex.getAllConfigurations().get(c)[i]) {
+          agrees = false;
+        }
+      }
+      Assert.assertEquals("configuration " + c, agrees, (narrowed & (1L << c)) != 0);
+    }
+
+    journal.rollback(mark);
+    Assert.assertEquals(everything, origin.getPossibleConfigurations());
+  }
+
+  // The old autofill swept every live non-full vertex over and over until a pass added nothing.
+  // The worklist only looks at vertices that changed, so it had better stop at the same place:
+  // nowhere left with a forced shape, not even far from where the last shape went in.
+  @Test
+  public void worklistLeavesNothingForced() {
+    TilingGenerator generator = new TilingGenerator(new Point(-8, -8), new Point(8, 8), new Tiling(3));
+    Tiling tiling = generator.getAllVertices().iterator().next().getTiling();
+    Assert.assertTrue(tiling.getAutoFillQueue().isEmpty());
+    for(Vertex vertex : generator.getAllVertices()) {
+      if(!vertex.isFull()) {
+        Assert.assertFalse("Forced shape left at " + vertex.getLocation(), hasForcedShape(vertex));
+      }
+    }
+  }
+
+  // Nothing drains the worklist outside of an attempt, so nothing should get put on it either.
+  @Test
+  public void nothingQueuedWithoutAJournal() {
+    Vertex origin = new Vertex();
+    origin.setLocation(CyclotomicPoint.ORIGIN, null);
+    Tiling tiling = origin.getTiling();
+    Assert.assertNull(origin.placeShape(new Kite(), Vwedge.K0, 0, false));
+    Assert.assertNull(origin.placeShape(new Kite(), Vwedge.K0, 2, false));
+    Assert.assertTrue(tiling.getAutoFillQueue().isEmpty());
+
+    // While an attempt is going, the vertices that changed are waiting their turn.
+    Journal journal = tiling.getJournal();
+    int mark = journal.begin();
+    Assert.assertNull(origin.placeShape(new Kite(), Vwedge.K0, 4, false));
+    Assert.assertFalse(tiling.getAutoFillQueue().isEmpty());
+    journal.rollback(mark);
+  }
+
+  // What one pass of the old sweep would have done to this vertex: stamp it if there's one configuration left,
+  // or fill any open wedge that every remaining configuration agrees on.
+  private static boolean hasForcedShape(Vertex vertex) {
+    long possible = vertex.getPossibleConfigurations();
+    if(Long.bitCount(possible) <= 1) {
+      return true;
+    }
+    Vwedge[] filled = vertex.getVwedges();
+    for(int i = 0; i < Vertex.WEDGE_COUNT; i++) {
+      if(filled[i] == null) {
+        Vwedge agreed = null;
+        boolean allAgree = true;
+        for(long remaining = possible; remaining != 0; remaining &= remaining - 1) {
+          Vwedge candidate = Vertex.getAllConfigurations().get(Long.numberOfTrailingZeros(remaining))[i];
+          if(agreed == null) {
+            agreed = candidate;
+          } else if(agreed != candidate) {
+            allAgree = false;
+          }
+        }
+        if(allAgree) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void overlappingShapeIsAConflict() {
+    Vertex origin = new Vertex();
+    origin.setLocation(CyclotomicPoint.ORIGIN, null);
+    origin.addShape(new Kite(), Vwedge.K0, 0, true);
+    Set<Vertex> liveVertices = new HashSet<>(origin.getAllLiveVertices());
+
+    Conflict conflict = origin.placeShape(new Dart(), Vwedge.D0, 0, true);
+    Assert.assertNotNull(conflict);
+    Assert.assertEquals(Conflict.Reason.INCOMPATIBLE_WEDGES, conflict.reason);
+    Assert.assertEquals(CyclotomicPoint.ORIGIN, conflict.location);
+    Assert.assertEquals(liveVertices, origin.getAllLiveVertices());
+  }
+
+  @Test
+  public void shapesOnlyPointAtLiveVertices() {
+    TilingGenerator generator = new TilingGenerator(new Point(-5, -5), new Point(5, 5), new Tiling(7));
+    Set<Vertex> liveVertices = generator.getAllVertices();
+    for(Vertex vertex : liveVertices) {
+      Assert.assertSame(vertex, vertex.calculateReplacement());
+      for(Shape shape : vertex.getWedges()) {
+        if(shape != null) {
+          for(Vertex shapeVertex : shape.getVertices()) {
+            Assert.assertFalse(shapeVertex.isDead());
+            Assert.assertTrue(liveVertices.contains(shapeVertex));
+          }
+        }
+      }
+    }
+  }
+
+}